@@ -1,5 +1,46 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Outcome of a Bank operation
+enum BankResult {
+    SUCCESS,
+    ACCOUNT_NOT_FOUND,
+    DUPLICATE_ACCOUNT,
+    INVALID_AMOUNT,
+    INSUFFICIENT_FUNDS,
+    SAME_ACCOUNT,
+    REQUEST_ID_CONFLICT   // request id already used for a different transfer
+}
 
 // Class representing a Bank Account
 class BankAccount {
@@ -17,112 +58,1335 @@ class BankAccount {
     public double getBalance(){
         return balance;
     }
-    // Method to deposit money
-    public void deposit(double amount) {
+    // Method to deposit money; false if the amount is not positive
+    public boolean deposit(double amount) {
         if (amount > 0) {
             balance += amount;
-            System.out.println("Successfully deposited: " + amount);
-        } else {
-            System.out.println("Deposit amount must be positive.");
+            return true;
         }
+        return false;
     }
 
-    // Method to withdraw money
-    public void withdraw(double amount) {
+    // Method to withdraw money; false if the amount is invalid or not covered
+    public boolean withdraw(double amount) {
         if (amount > 0 && balance >= amount) {
             balance -= amount;
-            System.out.println("Successfully withdrawn: " + amount);
-        } else {
-            System.out.println("Insufficient balance or invalid amount.");
+            return true;
         }
-    }
-
-    // Method to check balance
-    public void checkBalance() {
-        System.out.println("Account Number: " + accountNumber);
-        System.out.println("Account Holder: " + accountHolderName);
-        System.out.println("Current Balance: " + balance);
+        return false;
     }
 
     // Getter for account number
     public int getAccountNumber() {
         return accountNumber;
     }
+
+    // Getter for account holder name
+    public String getAccountHolderName() {
+        return accountHolderName;
+    }
+
+    // Detached copy that other threads may read safely
+    public BankAccount copy() {
+        return new BankAccount(accountNumber, accountHolderName, balance);
+    }
 }
 
-// Class representing the Bank which manages multiple accounts
+// Class representing a primitive int-keyed account index. Accounts are kept in
+// dense arrays in creation order; an open-addressing table (linear probing)
+// maps an account number to its position, so lookups never box and every int,
+// including 0 and negatives, is a valid key. Not thread-safe.
+class IntAccountTable {
+    private int[] slots = new int[16];          // 1 + position in the dense arrays, 0 = empty
+    private int[] numbers = new int[8];
+    private BankAccount[] accounts = new BankAccount[8];
+    private int size;
+
+    private static int hash(int key) {          // murmur3 finalizer
+        key ^= key >>> 16;
+        key *= 0x85EBCA6B;
+        key ^= key >>> 13;
+        key *= 0xC2B2AE35;
+        return key ^ (key >>> 16);
+    }
+
+    // Method to find account by account number; null if not present
+    public BankAccount get(int accountNumber) {
+        int mask = slots.length - 1;
+        for (int i = hash(accountNumber) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) {
+                return null;
+            }
+            if (numbers[slot - 1] == accountNumber) {
+                return accounts[slot - 1];
+            }
+        }
+    }
+
+    // Add the account unless its number is already taken
+    public boolean putIfAbsent(BankAccount account) {
+        int accountNumber = account.getAccountNumber();
+        int mask = slots.length - 1;
+        int i = hash(accountNumber) & mask;
+        for (int slot = slots[i]; slot != 0; slot = slots[i]) {
+            if (numbers[slot - 1] == accountNumber) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size == numbers.length) {
+            numbers = Arrays.copyOf(numbers, size * 2);
+            accounts = Arrays.copyOf(accounts, size * 2);
+        }
+        numbers[size] = accountNumber;
+        accounts[size] = account;
+        slots[i] = ++size;
+        if (size * 2 > slots.length) {          // keep the load factor at or below 1/2
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int p = 0; p < size; p++) {
+            int i = hash(numbers[p]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = p + 1;
+        }
+        slots = table;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Account at a position in creation order, 0 <= index < size()
+    public BankAccount at(int index) {
+        return accounts[index];
+    }
+}
+
+// Class representing the read side of one shard: account number -> holder and
+// balance as of the shard's last publish. Only the shard thread writes; any thread may read
+// without locking. Same open-addressing layout as IntAccountTable, but slots and
+// balances are atomic arrays so a reader sees a position only after its number
+// and balance were written, and a table is replaced as a whole when it grows.
+class BalanceView {
+    private static final class Table {
+        final AtomicIntegerArray slots;     // 1 + position, 0 = empty
+        final int[] numbers;
+        final String[] holders;             // never change once published
+        final AtomicLongArray balances;     // raw double bits
+
+        Table(int capacity) {
+            slots = new AtomicIntegerArray(capacity);
+            numbers = new int[capacity / 2];
+            holders = new String[capacity / 2];
+            balances = new AtomicLongArray(capacity / 2);
+        }
+    }
+
+    private volatile Table table = new Table(16);
+    private int size;                       // shard thread only
+
+    private static int hash(int key) {      // murmur3 finalizer
+        key ^= key >>> 16;
+        key *= 0x85EBCA6B;
+        key ^= key >>> 13;
+        key *= 0xC2B2AE35;
+        return key ^ (key >>> 16);
+    }
+
+    // Published balance, or NaN if the account has not been published
+    public double balance(int accountNumber) {
+        Table t = table;
+        int slot = find(t, accountNumber);
+        return slot == 0 ? Double.NaN : Double.longBitsToDouble(t.balances.get(slot - 1));
+    }
+
+    // Published holder name, or null if the account has not been published
+    public String holder(int accountNumber) {
+        Table t = table;
+        int slot = find(t, accountNumber);
+        return slot == 0 ? null : t.holders[slot - 1];
+    }
+
+    private static int find(Table t, int accountNumber) {
+        int mask = t.slots.length() - 1;
+        for (int i = hash(accountNumber) & mask; ; i = (i + 1) & mask) {
+            int slot = t.slots.get(i);
+            if (slot == 0 || t.numbers[slot - 1] == accountNumber) {
+                return slot;
+            }
+        }
+    }
+
+    // Shard thread only
+    public void publish(int accountNumber, String holder, double balance) {
+        long bits = Double.doubleToRawLongBits(balance);
+        Table t = table;
+        int mask = t.slots.length() - 1;
+        int i = hash(accountNumber) & mask;
+        for (int slot = t.slots.get(i); slot != 0; slot = t.slots.get(i)) {
+            if (t.numbers[slot - 1] == accountNumber) {
+                t.balances.lazySet(slot - 1, bits);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size == t.numbers.length) {     // keep the load factor at or below 1/2
+            t = grow(t);
+            mask = t.slots.length() - 1;
+            i = hash(accountNumber) & mask;
+            while (t.slots.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+        }
+        t.numbers[size] = accountNumber;
+        t.holders[size] = holder;
+        t.balances.lazySet(size, bits);
+        t.slots.set(i, ++size);             // volatile write publishes the three above
+    }
+
+    private Table grow(Table old) {
+        Table t = new Table(old.slots.length() * 2);
+        int mask = t.slots.length() - 1;
+        for (int p = 0; p < size; p++) {
+            t.numbers[p] = old.numbers[p];
+            t.holders[p] = old.holders[p];
+            t.balances.lazySet(p, old.balances.get(p));
+            int i = hash(old.numbers[p]) & mask;
+            while (t.slots.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+            t.slots.lazySet(i, p + 1);
+        }
+        table = t;
+        return t;
+    }
+}
+
+// Class representing one shard's part of a snapshot: its accounts as they
+// were at the shard's cut, with balances in integer cents
+class ShardImage {
+    final int[] numbers;
+    final String[] holders;
+    final long[] cents;
+    final long[] checksums;       // filled in by the reconciliation pass
+    final long netFlowCents;      // money that entered minus money that left through this shard
+
+    ShardImage(int count, long netFlowCents) {
+        numbers = new int[count];
+        holders = new String[count];
+        cents = new long[count];
+        checksums = new long[count];
+        this.netFlowCents = netFlowCents;
+    }
+}
+
+// Class representing one consistent snapshot of the whole Bank (see Bank.reconcile)
+class BankSnapshot {
+    final int epoch;
+    final ShardImage[] images;
+    final LongAdder inFlightCents = new LongAdder();   // transfers between shards at the cut
+
+    BankSnapshot(int epoch, int shardCount) {
+        this.epoch = epoch;
+        this.images = new ShardImage[shardCount];
+    }
+}
+
+// Class representing one shard of the Bank: the accounts it owns are only ever
+// touched by the shard's single writer thread, so no locking is needed. Other
+// threads talk to it by submitting tasks to its mailbox.
+class BankShard {
+    private final IntAccountTable accounts = new IntAccountTable();
+    private final ExecutorService mailbox;
+    private final int index;
+    private int epoch;                 // latest snapshot this shard has taken its cut for
+    private BankSnapshot snapshot;     // that snapshot
+    private long netFlowCents;         // opening balances + deposits - withdrawals
+    private final BalanceView view = new BalanceView();
+    private final long publishIntervalNanos;
+    private long lastPublish;
+    private int[] changed = new int[256];   // accounts changed since the last publish, may repeat
+    private int changedCount;
+
+    // Changed balances reach the view within about maxStalenessNanos
+    public BankShard(int index, long maxStalenessNanos) {
+        this.index = index;
+        this.publishIntervalNanos = maxStalenessNanos / 2;
+        mailbox = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "bank-shard-" + index);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Queue a task to run on the shard thread
+    public void execute(Runnable task) {
+        mailbox.execute(() -> {
+            task.run();
+            if (changedCount > 0) {
+                publishIfDue();
+            }
+        });
+    }
+
+    // Lock-free read side; any thread
+    public BalanceView view() {
+        return view;
+    }
+
+    // Publishing is batched: at most once per half staleness bound while busy.
+    // Bank's ticker queues publishIfDue on idle shards.
+    public void publishIfDue() {
+        long now = System.nanoTime();
+        if (changedCount > 0 && now - lastPublish >= publishIntervalNanos) {
+            for (int i = 0; i < changedCount; i++) {
+                BankAccount account = accounts.get(changed[i]);
+                view.publish(account.getAccountNumber(), account.getAccountHolderName(), account.getBalance());
+            }
+            changedCount = 0;
+            lastPublish = now;
+        }
+    }
+
+    private void changed(int accountNumber) {
+        if (changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changedCount * 2);
+        }
+        changed[changedCount++] = accountNumber;
+    }
+
+    // The methods below must only run on the shard thread
+
+    public BankResult create(int accountNumber, String accountHolderName, double initialBalance) {
+        if (!accounts.putIfAbsent(new BankAccount(accountNumber, accountHolderName, initialBalance))) {
+            return BankResult.DUPLICATE_ACCOUNT;
+        }
+        netFlowCents += toCents(initialBalance);
+        changed(accountNumber);
+        return BankResult.SUCCESS;
+    }
+
+    // Money entering the bank
+    public BankResult deposit(int accountNumber, double amount) {
+        BankResult result = credit(accountNumber, amount);
+        if (result == BankResult.SUCCESS) {
+            netFlowCents += toCents(amount);
+        }
+        return result;
+    }
+
+    // Money leaving the bank
+    public BankResult withdraw(int accountNumber, double amount) {
+        BankResult result = debit(accountNumber, amount);
+        if (result == BankResult.SUCCESS) {
+            netFlowCents -= toCents(amount);
+        }
+        return result;
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public int epoch() {
+        return epoch;
+    }
+
+    // Marker for snapshot s; a no-op if a message from a later epoch already made us take the cut
+    public void mark(BankSnapshot s) {
+        if (s.epoch > epoch) {
+            cut(s);
+        }
+    }
+
+    // Call before applying a cross-shard message sent while its sender was in epoch tag.
+    // A message from a later epoch means the sender already took its cut, so we take
+    // ours first; a message from an earlier epoch was in flight across the cut.
+    public void receive(int tag, double amount, BankSnapshot current) {
+        if (tag > epoch) {
+            cut(current);
+        } else if (tag < epoch) {
+            snapshot.inFlightCents.add(toCents(amount));
+        }
+    }
+
+    // Copy this shard's balances into the snapshot
+    private void cut(BankSnapshot s) {
+        ShardImage image = new ShardImage(accounts.size(), netFlowCents);
+        for (int i = 0; i < accounts.size(); i++) {
+            BankAccount account = accounts.at(i);
+            image.numbers[i] = account.getAccountNumber();
+            image.holders[i] = account.getAccountHolderName();
+            image.cents[i] = toCents(account.getBalance());
+        }
+        s.images[index] = image;
+        snapshot = s;
+        epoch = s.epoch;
+    }
+
+    public BankAccount find(int accountNumber) {
+        return accounts.get(accountNumber);
+    }
+
+    public BankResult credit(int accountNumber, double amount) {
+        BankAccount account = accounts.get(accountNumber);
+        if (account == null) {
+            return BankResult.ACCOUNT_NOT_FOUND;
+        }
+        account.deposit(amount);
+        changed(accountNumber);
+        return BankResult.SUCCESS;
+    }
+
+    public BankResult debit(int accountNumber, double amount) {
+        BankAccount account = accounts.get(accountNumber);
+        if (account == null) {
+            return BankResult.ACCOUNT_NOT_FOUND;
+        }
+        if (!account.withdraw(amount)) {
+            return BankResult.INSUFFICIENT_FUNDS;
+        }
+        changed(accountNumber);
+        return BankResult.SUCCESS;
+    }
+
+    // Both accounts live on this shard, so the transfer is a single step
+    public BankResult transferLocal(int fromAccountNumber, int toAccountNumber, double amount) {
+        BankAccount from = accounts.get(fromAccountNumber);
+        BankAccount to = accounts.get(toAccountNumber);
+        if (from == null || to == null) {
+            return BankResult.ACCOUNT_NOT_FOUND;
+        }
+        if (!from.withdraw(amount)) {
+            return BankResult.INSUFFICIENT_FUNDS;
+        }
+        to.deposit(amount);
+        changed(fromAccountNumber);
+        changed(toAccountNumber);
+        return BankResult.SUCCESS;
+    }
+
+    public double totalBalance() {
+        double total = 0;
+        for (int i = 0; i < accounts.size(); i++) {
+            total += accounts.at(i).getBalance();
+        }
+        return total;
+    }
+
+    // Copies of this shard's accounts, in creation order
+    public List<BankAccount> copyAccounts() {
+        List<BankAccount> copies = new ArrayList<>(accounts.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            copies.add(accounts.at(i).copy());
+        }
+        return copies;
+    }
+
+    public void shutdown() throws InterruptedException {
+        mailbox.shutdown();
+        mailbox.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
+
+// Class representing the dedup cache for client request ids. The first call
+// with an id stores its result future; repeats within the time-to-live get the
+// same future back, so a retry of a transfer that is still running waits for
+// it instead of running again. Entries are evicted oldest first once expired,
+// or when the cache is over capacity, but never while their transfer is still
+// running; memory is therefore bounded by capacity plus transfers in flight.
+class TransferDedupCache {
+    // Cached outcome of one request
+    private static final class Entry {
+        final String requestId;
+        final int fromAccountNumber;
+        final int toAccountNumber;
+        final double amount;
+        final long expiresAt;   // System.nanoTime() deadline
+        final CompletableFuture<BankResult> result = new CompletableFuture<>();
+
+        Entry(String requestId, int fromAccountNumber, int toAccountNumber, double amount, long expiresAt) {
+            this.requestId = requestId;
+            this.fromAccountNumber = fromAccountNumber;
+            this.toAccountNumber = toAccountNumber;
+            this.amount = amount;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean sameRequest(int from, int to, double amt) {
+            return fromAccountNumber == from && toAccountNumber == to && Double.compare(amount, amt) == 0;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ReentrantLock evictLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final int capacity;
+    private final long ttlNanos;
+
+    public TransferDedupCache(int capacity, long ttlMillis) {
+        this.capacity = capacity;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    // Result of the earlier call with this id, or run the transfer and remember its result
+    public CompletableFuture<BankResult> execute(String requestId, int fromAccountNumber, int toAccountNumber,
+                                                 double amount, Transfer transfer) {
+        long now = System.nanoTime();
+        Entry fresh = new Entry(requestId, fromAccountNumber, toAccountNumber, amount, now + ttlNanos);
+        while (true) {
+            Entry existing = entries.putIfAbsent(requestId, fresh);
+            if (existing == null) {
+                break;
+            }
+            if (existing.expiresAt - now > 0) {
+                hits.increment();
+                return existing.sameRequest(fromAccountNumber, toAccountNumber, amount)
+                        ? existing.result : CompletableFuture.completedFuture(BankResult.REQUEST_ID_CONFLICT);
+            }
+            if (entries.replace(requestId, existing, fresh)) {
+                break;   // the old entry had expired
+            }
+        }
+        insertionOrder.add(fresh);
+        queued.incrementAndGet();
+        transfer.run(fromAccountNumber, toAccountNumber, amount).whenComplete((r, e) -> {
+            if (e != null) {
+                fresh.result.completeExceptionally(e);
+            } else {
+                fresh.result.complete(r);
+            }
+        });
+        evict(now);
+        return fresh.result;
+    }
+
+    // Drop expired entries, and the oldest ones while over capacity; one thread at a time
+    private void evict(long now) {
+        if (!evictLock.tryLock()) {
+            return;   // another thread is already evicting
+        }
+        try {
+            Entry oldest;
+            while ((oldest = insertionOrder.peek()) != null
+                    && (oldest.expiresAt - now <= 0 || queued.get() > capacity)
+                    && oldest.result.isDone()) {
+                insertionOrder.poll();
+                queued.decrementAndGet();
+                entries.remove(oldest.requestId, oldest);
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Number of calls answered from the cache
+    public long hits() {
+        return hits.sum();
+    }
+
+    // The operation whose result is being cached
+    interface Transfer {
+        CompletableFuture<BankResult> run(int fromAccountNumber, int toAccountNumber, double amount);
+    }
+}
+
+// Class representing the outcome of Bank.reconcile
+class ReconciliationReport {
+    int epoch;
+    int accounts;
+    long totalCents;        // sum of balances at the cut
+    long inFlightCents;     // transfers between shards at the cut
+    long expectedCents;     // opening balances + deposits - withdrawals up to the cut
+    long checksum;          // sum of per-account CRC32s, independent of order
+    long cutNanos;          // time until every shard had taken its cut and drained
+    long elapsedNanos;
+
+    // Every cent is accounted for
+    public boolean isBalanced() {
+        return totalCents + inFlightCents == expectedCents;
+    }
+}
+
+// Class representing the Bank which manages multiple accounts. Accounts are
+// partitioned by account number across single-writer shards; every operation
+// is a message to the owning shard and completes a future with its result.
+// A transfer between shards debits the sender on its shard, then credits the
+// receiver on the other; if the credit fails the debit is compensated.
+// Transfers that carry a client request id are deduplicated, so a retried
+// request returns the original outcome instead of moving the money again.
+// reconcile() takes a consistent snapshot while operations keep running.
+// Balance checks read per-shard views that the shards publish asynchronously,
+// so read traffic never queues behind deposits and transfers.
 class Bank {
-    private ArrayList<BankAccount> accounts = new ArrayList<>();
+    private final BankShard[] shards;
+    private final ScheduledExecutorService publisher;   // flushes views of idle shards
+    private final TransferDedupCache dedup;
+    private volatile BankSnapshot currentSnapshot;   // latest snapshot started
+    private int lastEpoch;                           // guarded by reconcile's lock
+    private final AtomicInteger inFlight = new AtomicInteger();   // operations not yet completed
+
+    // One shard per available core
+    public Bank() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Bank(int shardCount) {
+        this(shardCount, 100_000, TimeUnit.MINUTES.toMillis(10));
+    }
+
+    // dedupCapacity request ids are remembered for up to dedupTtlMillis each
+    public Bank(int shardCount, int dedupCapacity, long dedupTtlMillis) {
+        this(shardCount, dedupCapacity, dedupTtlMillis, 20);
+    }
+
+    // checkBalance may lag the latest write by about maxStalenessMillis (0 = publish after every operation)
+    public Bank(int shardCount, int dedupCapacity, long dedupTtlMillis, long maxStalenessMillis) {
+        dedup = new TransferDedupCache(dedupCapacity, dedupTtlMillis);
+        shards = new BankShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new BankShard(i, TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis));
+        }
+        publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-view-publisher");
+            t.setDaemon(true);
+            return t;
+        });
+        if (maxStalenessMillis > 0) {
+            long tick = TimeUnit.MILLISECONDS.toMicros(maxStalenessMillis) / 2;
+            publisher.scheduleAtFixedRate(() -> {
+                for (BankShard shard : shards) {
+                    shard.execute(shard::publishIfDue);
+                }
+            }, tick, tick, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    private BankShard shardFor(int accountNumber) {
+        int h = accountNumber * 0x9E3779B9;   // spread sequential numbers evenly
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+
+    private static boolean isValidAmount(double amount) {
+        return amount > 0 && amount < Double.POSITIVE_INFINITY && isWholeCents(amount);
+    }
+
+    // Reconciliation counts money in cents, so sub-cent amounts would drift from the balances
+    private static boolean isWholeCents(double amount) {
+        double cents = amount * 100;
+        return Math.abs(cents - Math.rint(cents)) <= 4 * Math.ulp(cents);
+    }
+
+    // Track a new operation until its future completes
+    private <T> CompletableFuture<T> begin() {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        result.whenComplete((r, e) -> inFlight.decrementAndGet());
+        return result;
+    }
 
     // Method to create new account
-    public void createAccount(int accountNumber, String accountHolderName, double initialBalance) {
-        BankAccount newAccount = new BankAccount(accountNumber, accountHolderName, initialBalance);
-        accounts.add(newAccount);
-        System.out.println("Account created successfully.");
+    public CompletableFuture<BankResult> createAccount(int accountNumber, String accountHolderName,
+                                                       double initialBalance) {
+        CompletableFuture<BankResult> result = begin();
+        if (!(initialBalance >= 0 && initialBalance < Double.POSITIVE_INFINITY) || !isWholeCents(initialBalance)) {
+            result.complete(BankResult.INVALID_AMOUNT);
+            return result;
+        }
+        BankShard shard = shardFor(accountNumber);
+        shard.execute(() -> result.complete(shard.create(accountNumber, accountHolderName, initialBalance)));
+        return result;
     }
 
-    // Method to find account by account number
-    public BankAccount findAccount(int accountNumber) {
-        for (BankAccount acc : accounts) {
-            if (acc.getAccountNumber() == accountNumber) {
-                return acc;
-            }
+    // Balance from the read model, without touching the shard thread. It may lag
+    // recent writes by up to the staleness bound; an account created too recently
+    // to be in the view is looked up on its shard. Empty if there is no such account.
+    public OptionalDouble checkBalance(int accountNumber) {
+        double balance = shardFor(accountNumber).view().balance(accountNumber);
+        if (!Double.isNaN(balance)) {
+            return OptionalDouble.of(balance);
         }
-        return null; // if not found
+        BankAccount account = findAccount(accountNumber).join();
+        return account != null ? OptionalDouble.of(account.getBalance()) : OptionalDouble.empty();
+    }
+
+    // Holder name from the read model, falling back to the shard like checkBalance; null if there is no such account
+    public String accountHolder(int accountNumber) {
+        String holder = shardFor(accountNumber).view().holder(accountNumber);
+        if (holder != null) {
+            return holder;
+        }
+        BankAccount account = findAccount(accountNumber).join();
+        return account != null ? account.getAccountHolderName() : null;
+    }
+
+    // Method to find account by account number; completes with a copy, or null if not found
+    public CompletableFuture<BankAccount> findAccount(int accountNumber) {
+        CompletableFuture<BankAccount> result = begin();
+        BankShard shard = shardFor(accountNumber);
+        shard.execute(() -> {
+            BankAccount account = shard.find(accountNumber);
+            result.complete(account == null ? null : account.copy());
+        });
+        return result;
+    }
+
+    // Method to deposit money
+    public CompletableFuture<BankResult> deposit(int accountNumber, double amount) {
+        CompletableFuture<BankResult> result = begin();
+        if (!isValidAmount(amount)) {
+            result.complete(BankResult.INVALID_AMOUNT);
+            return result;
+        }
+        BankShard shard = shardFor(accountNumber);
+        shard.execute(() -> result.complete(shard.deposit(accountNumber, amount)));
+        return result;
+    }
+
+    // Method to withdraw money
+    public CompletableFuture<BankResult> withdraw(int accountNumber, double amount) {
+        CompletableFuture<BankResult> result = begin();
+        if (!isValidAmount(amount)) {
+            result.complete(BankResult.INVALID_AMOUNT);
+            return result;
+        }
+        BankShard shard = shardFor(accountNumber);
+        shard.execute(() -> result.complete(shard.withdraw(accountNumber, amount)));
+        return result;
     }
 
     // Method to transfer money between accounts
-    public void transferMoney(int fromAccountNumber, int toAccountNumber, double amount) {
-        BankAccount fromAccount = findAccount(fromAccountNumber);
-        BankAccount toAccount = findAccount(toAccountNumber);
-
-        if (fromAccount != null && toAccount != null) {
-            if (amount > 0) {
-                if (fromAccountNumber == toAccountNumber) {
-                    System.out.println("Cannot transfer to the same account.");
-                } else {
-                    if (amount <= 0) {
-                        System.out.println("Invalid amount.");
-                    } else {
-                        if (fromAccount != null && toAccount != null) {
-                            if (fromAccountNumber == toAccountNumber) {
-                                System.out.println("Cannot transfer to the same account.");
-                            } else {
-                                if (amount > 0) {
-                                    if (fromAccountNumber != toAccountNumber) {
-                                        if (amount <= 0) {
-                                            System.out.println("Invalid amount.");
-                                        } else {
-                                            if (amount > 0) {
-                                                if (fromAccountNumber != toAccountNumber) {
-                                                    if (fromAccount != null && toAccount != null) {
-                                                        if (amount > 0 && amount <= fromAccount.getBalance()) {
-                                                            fromAccount.withdraw(amount);
-                                                            toAccount.deposit(amount);
-                                                            System.out.println("Transfer successful: " + amount);
-                                                        } else {
-                                                            System.out.println("Transfer failed. Insufficient funds.");
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
+    public CompletableFuture<BankResult> transferMoney(int fromAccountNumber, int toAccountNumber, double amount) {
+        CompletableFuture<BankResult> result = begin();
+        if (!isValidAmount(amount)) {
+            result.complete(BankResult.INVALID_AMOUNT);
+            return result;
+        }
+        if (fromAccountNumber == toAccountNumber) {
+            result.complete(BankResult.SAME_ACCOUNT);
+            return result;
+        }
+        BankShard source = shardFor(fromAccountNumber);
+        BankShard target = shardFor(toAccountNumber);
+        if (source == target) {
+            source.execute(() -> result.complete(source.transferLocal(fromAccountNumber, toAccountNumber, amount)));
+            return result;
+        }
+        // Step 1: debit on the sender's shard
+        source.execute(() -> {
+            BankResult debit = source.debit(fromAccountNumber, amount);
+            if (debit != BankResult.SUCCESS) {
+                result.complete(debit);
+                return;
+            }
+            int sentIn = source.epoch();   // snapshot epoch the money left in
+            // Step 2: credit on the receiver's shard
+            target.execute(() -> {
+                target.receive(sentIn, amount, currentSnapshot);
+                BankResult credit = target.credit(toAccountNumber, amount);
+                if (credit == BankResult.SUCCESS) {
+                    result.complete(BankResult.SUCCESS);
+                    return;
+                }
+                int returnedIn = target.epoch();
+                // Compensation: give the money back to the sender
+                source.execute(() -> {
+                    source.receive(returnedIn, amount, currentSnapshot);
+                    source.credit(fromAccountNumber, amount);
+                    result.complete(credit);
+                });
+            });
+        });
+        return result;
+    }
+
+    // Idempotent transfer: repeats of requestId return the first call's outcome
+    public CompletableFuture<BankResult> transferMoney(String requestId, int fromAccountNumber, int toAccountNumber,
+                                                       double amount) {
+        return dedup.execute(requestId, fromAccountNumber, toAccountNumber, amount, this::transferMoney);
+    }
+
+    public TransferDedupCache dedupCache() {
+        return dedup;
+    }
+
+    // Sum of all balances; money in the middle of a cross-shard transfer is not counted
+    public double totalBalance() {
+        double total = 0;
+        for (BankShard shard : shards) {
+            CompletableFuture<Double> part = new CompletableFuture<>();
+            shard.execute(() -> part.complete(shard.totalBalance()));
+            total += part.join();
+        }
+        return total;
+    }
+
+    // End-of-day reconciliation without stopping the bank. Snapshot (Lai-Yang style):
+    // every shard takes its cut when it handles the marker, or earlier if a transfer
+    // message from a shard that has already cut arrives first; credits and refunds
+    // carry the epoch they were sent in, so money sent before its sender's cut and
+    // received after the receiver's is counted as in flight. A second round of no-op
+    // tasks then drains every such message, as each was queued before the first round
+    // ended. The reconciliation pass runs in parallel on the copies, off the shard
+    // threads. Writes a CSV of all accounts to exportFile unless it is null.
+    public synchronized ReconciliationReport reconcile(Path exportFile) throws IOException {
+        long start = System.nanoTime();
+        BankSnapshot s = new BankSnapshot(++lastEpoch, shards.length);
+        currentSnapshot = s;
+        onEveryShard(shard -> shard.mark(s));
+        onEveryShard(shard -> { });
+        long cutNanos = System.nanoTime() - start;
+
+        // Per-account checksums and totals, in parallel chunks
+        List<int[]> chunks = new ArrayList<>();
+        for (int i = 0; i < s.images.length; i++) {
+            for (int from = 0; from < s.images[i].numbers.length; from += 65_536) {
+                chunks.add(new int[] {i, from, Math.min(from + 65_536, s.images[i].numbers.length)});
+            }
+        }
+        LongAdder total = new LongAdder();
+        LongAdder checksum = new LongAdder();
+        chunks.parallelStream().forEach(chunk -> {
+            ShardImage image = s.images[chunk[0]];
+            CRC32 crc = new CRC32();
+            long sum = 0;
+            long check = 0;
+            for (int i = chunk[1]; i < chunk[2]; i++) {
+                image.checksums[i] = accountChecksum(crc, image.numbers[i], image.holders[i], image.cents[i]);
+                sum += image.cents[i];
+                check += image.checksums[i];
+            }
+            total.add(sum);
+            checksum.add(check);
+        });
+
+        ReconciliationReport report = new ReconciliationReport();
+        report.epoch = s.epoch;
+        for (ShardImage image : s.images) {
+            report.accounts += image.numbers.length;
+            report.expectedCents += image.netFlowCents;
+        }
+        report.totalCents = total.sum();
+        report.inFlightCents = s.inFlightCents.sum();
+        report.checksum = checksum.sum();
+        report.cutNanos = cutNanos;
+        if (exportFile != null) {
+            export(s, exportFile);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // Run a task on every shard and wait until all of them have run it
+    private void onEveryShard(Consumer<BankShard> task) {
+        CompletableFuture<?>[] done = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            BankShard shard = shards[i];
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            shard.execute(() -> {
+                task.accept(shard);
+                f.complete(null);
+            });
+            done[i] = f;
+        }
+        CompletableFuture.allOf(done).join();
+    }
+
+    // CRC32 of account number, balance in cents and holder name
+    static long accountChecksum(CRC32 crc, int number, String holder, long cents) {
+        crc.reset();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            crc.update(number >>> shift);
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (cents >>> shift));
+        }
+        crc.update(holder.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    // accountNumber,holder,balance,checksum for every account in the snapshot, by account number
+    private static void export(BankSnapshot s, Path file) throws IOException {
+        int count = 0;
+        for (ShardImage image : s.images) {
+            count += image.numbers.length;
+        }
+        long[] order = new long[count];   // account number (biased to sort unsigned) << 32 | position
+        int[] imageOf = new int[count];
+        int[] positionOf = new int[count];
+        int k = 0;
+        for (int i = 0; i < s.images.length; i++) {
+            for (int j = 0; j < s.images[i].numbers.length; j++) {
+                order[k] = ((long) (s.images[i].numbers[j] ^ Integer.MIN_VALUE) << 32) | k;
+                imageOf[k] = i;
+                positionOf[k] = j;
+                k++;
+            }
+        }
+        Arrays.parallelSort(order);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("accountNumber,holder,balance,checksum\n");
+            StringBuilder line = new StringBuilder(96);
+            for (long key : order) {
+                int at = (int) key;
+                ShardImage image = s.images[imageOf[at]];
+                int p = positionOf[at];
+                long cents = image.cents[p];
+                line.setLength(0);
+                line.append(image.numbers[p]).append(',').append(csv(image.holders[p])).append(',');
+                if (cents < 0) {
+                    line.append('-');
+                }
+                long abs = Math.abs(cents);
+                line.append(abs / 100).append('.').append(abs % 100 < 10 ? "0" : "").append(abs % 100);
+                line.append(',').append(Long.toHexString(image.checksums[p])).append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    private static String csv(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    // Copies of all accounts ordered by account number, for reports
+    public List<BankAccount> listAccounts() {
+        List<CompletableFuture<List<BankAccount>>> parts = new ArrayList<>(shards.length);
+        for (BankShard shard : shards) {
+            CompletableFuture<List<BankAccount>> part = new CompletableFuture<>();
+            shard.execute(() -> part.complete(shard.copyAccounts()));
+            parts.add(part);
+        }
+        List<BankAccount> all = new ArrayList<>();
+        for (CompletableFuture<List<BankAccount>> part : parts) {
+            all.addAll(part.join());
+        }
+        all.sort(Comparator.comparingInt(BankAccount::getAccountNumber));
+        return all;
+    }
+
+    // Wait for running operations to finish, then stop the shard threads
+    public void shutdown() throws InterruptedException {
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        publisher.shutdownNow();
+        publisher.awaitTermination(1, TimeUnit.MINUTES);
+        for (BankShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
+
+// Class representing a recorded stream of Bank operations, one per line:
+//   C <account> <initialBalance> <holder name...>   create account
+//   D <account> <amount>                            deposit
+//   W <account> <amount>                            withdraw
+//   B <account>                                     check balance
+//   T <from> <to> <amount> [requestId]              transfer
+// Blank lines and lines starting with # are ignored. Stored column-wise so a
+// replay touches only primitive arrays.
+class CommandLog {
+    static final byte CREATE = 'C';
+    static final byte DEPOSIT = 'D';
+    static final byte WITHDRAW = 'W';
+    static final byte BALANCE = 'B';
+    static final byte TRANSFER = 'T';
+    static final byte[] OPS = {CREATE, DEPOSIT, WITHDRAW, BALANCE, TRANSFER};
+
+    private byte[] ops = new byte[1024];
+    private int[] first = new int[1024];
+    private int[] second = new int[1024];
+    private double[] amounts = new double[1024];
+    private String[] texts = new String[1024];   // holder name or request id, else null
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public byte op(int i) {
+        return ops[i];
+    }
+
+    public int first(int i) {
+        return first[i];
+    }
+
+    public int second(int i) {
+        return second[i];
+    }
+
+    public double amount(int i) {
+        return amounts[i];
+    }
+
+    public String text(int i) {
+        return texts[i];
+    }
+
+    public void add(byte op, int a, int b, double amount, String text) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            first = Arrays.copyOf(first, capacity);
+            second = Arrays.copyOf(second, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        ops[size] = op;
+        first[size] = a;
+        second[size] = b;
+        amounts[size] = amount;
+        texts[size] = text;
+        size++;
+    }
+
+    // Parse a whole stream. Works on raw bytes: no regex, no per-token strings
+    // except holder names and request ids.
+    public static CommandLog read(InputStream in) throws IOException {
+        CommandLog log = new CommandLog();
+        new Parser(in).parseInto(log);
+        return log;
+    }
+
+    private static final class Parser {
+        private final InputStream in;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+        private int limit;
+        private int line = 1;
+        private byte[] text = new byte[64];   // scratch for rest()
+
+        Parser(InputStream in) {
+            this.in = in;
+        }
+
+        // Next byte without consuming it, or -1 at end of input
+        private int peek() throws IOException {
+            if (pos == limit) {
+                limit = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buf[pos] & 0xFF;
+        }
+
+        private void parseInto(CommandLog log) throws IOException {
+            while (true) {
+                skipBlanks();
+                int c = peek();
+                if (c < 0) {
+                    return;
+                }
+                pos++;
+                if (c == '\n' || c == '\r') {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    continue;
+                }
+                switch (c) {
+                    case '#':
+                        rest();
+                        continue;
+                    case CREATE: {
+                        int account = number();
+                        double balance = amount();
+                        String holder = rest().trim();
+                        if (holder.isEmpty()) {
+                            throw error("missing holder name");
                         }
+                        log.add(CREATE, account, 0, balance, holder);
+                        continue;
                     }
+                    case DEPOSIT:
+                    case WITHDRAW:
+                        log.add((byte) c, number(), 0, amount(), null);
+                        break;
+                    case BALANCE:
+                        log.add(BALANCE, number(), 0, 0, null);
+                        break;
+                    case TRANSFER: {
+                        int from = number();
+                        int to = number();
+                        double amount = amount();
+                        String requestId = rest().trim();
+                        log.add(TRANSFER, from, to, amount, requestId.isEmpty() ? null : requestId);
+                        continue;
+                    }
+                    default:
+                        throw error("unknown command '" + (char) c + "'");
+                }
+                endOfLine();
+            }
+        }
+
+        private void skipBlanks() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\t') {
+                pos++;
+            }
+        }
+
+        private int number() throws IOException {
+            skipBlanks();
+            boolean negative = peek() == '-';
+            if (negative) {
+                pos++;
+            }
+            long value = 0;
+            int digits = 0;
+            int c;
+            while ((c = peek()) >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw error("account number out of range");
+                }
+                digits++;
+                pos++;
+            }
+            value = negative ? -value : value;
+            if (digits == 0 || value > Integer.MAX_VALUE) {
+                throw error("expected an account number");
+            }
+            return (int) value;
+        }
+
+        // Decimal amount; exact for up to 15 significant digits, since the
+        // mantissa and the power of ten are both exact doubles
+        private double amount() throws IOException {
+            skipBlanks();
+            long mantissa = 0;
+            int digits = 0;
+            int scale = -1;
+            int c;
+            while (((c = peek()) >= '0' && c <= '9') || (c == '.' && scale < 0)) {
+                pos++;
+                if (c == '.') {
+                    scale = 0;
+                    continue;
+                }
+                if (++digits > 15) {
+                    throw error("amount has too many digits");
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            }
+            if (digits == 0) {
+                throw error("expected an amount");
+            }
+            return scale <= 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        }
+
+        // Remainder of the line as UTF-8 text, consuming the line end
+        private String rest() throws IOException {
+            int length = 0;
+            int c;
+            while ((c = peek()) >= 0 && c != '\n') {
+                pos++;
+                if (length == text.length) {
+                    text = Arrays.copyOf(text, length * 2);
+                }
+                text[length++] = (byte) c;
+            }
+            if (c == '\n') {
+                pos++;
+                line++;
+            }
+            if (length > 0 && text[length - 1] == '\r') {
+                length--;
+            }
+            return new String(text, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void endOfLine() throws IOException {
+            skipBlanks();
+            int c = peek();
+            if (c == '\r') {
+                pos++;
+                c = peek();
+            }
+            if (c == '\n') {
+                pos++;
+                line++;
+            } else if (c >= 0) {
+                throw error("unexpected '" + (char) c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("line " + line + ": " + message);
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+}
+
+// Class that feeds a CommandLog into a Bank with a bounded number of operations
+// in flight, timing each one from submission to completion
+class ReplayDriver {
+    private final Bank bank;
+    private final int window;
+
+    public ReplayDriver(Bank bank, int window) {
+        this.bank = bank;
+        this.window = window;
+    }
+
+    // Outcome of one replay
+    static class Stats {
+        long elapsedNanos;
+        byte[] ops;
+        long[] latencyNanos;                 // per command, in log order
+        final AtomicLongArray results = new AtomicLongArray(BankResult.values().length);
+    }
+
+    public Stats replay(CommandLog log) throws InterruptedException {
+        int n = log.size();
+        Stats stats = new Stats();
+        stats.ops = new byte[n];
+        stats.latencyNanos = new long[n];
+        Semaphore inFlight = new Semaphore(window);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            inFlight.acquire();
+            int index = i;
+            long submitted = System.nanoTime();
+            stats.ops[i] = log.op(i);
+            submit(log, i).whenComplete((r, e) -> {
+                stats.latencyNanos[index] = System.nanoTime() - submitted;
+                if (r != null) {
+                    stats.results.incrementAndGet(r.ordinal());
+                }
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(window);   // also publishes the completions' writes to this thread
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    private CompletableFuture<BankResult> submit(CommandLog log, int i) {
+        switch (log.op(i)) {
+            case CommandLog.CREATE:
+                return bank.createAccount(log.first(i), log.text(i), log.amount(i));
+            case CommandLog.DEPOSIT:
+                return bank.deposit(log.first(i), log.amount(i));
+            case CommandLog.WITHDRAW:
+                return bank.withdraw(log.first(i), log.amount(i));
+            case CommandLog.BALANCE:
+                return CompletableFuture.completedFuture(bank.checkBalance(log.first(i)).isPresent()
+                        ? BankResult.SUCCESS : BankResult.ACCOUNT_NOT_FOUND);
+            default:
+                String requestId = log.text(i);
+                return requestId == null
+                        ? bank.transferMoney(log.first(i), log.second(i), log.amount(i))
+                        : bank.transferMoney(requestId, log.first(i), log.second(i), log.amount(i));
+        }
+    }
+
+    // Throughput, then latency percentiles for each kind of command and overall
+    public static void report(Stats stats, PrintStream out) {
+        int n = stats.ops.length;
+        out.printf("%d commands in %.3f s: %.0f ops/s%n", n, stats.elapsedNanos / 1e9, n / (stats.elapsedNanos / 1e9));
+        out.printf("%-9s %10s %10s %10s %10s %10s %10s%n", "command", "count", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (byte op : CommandLog.OPS) {
+            long[] latencies = new long[n];
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (stats.ops[i] == op) {
+                    latencies[count++] = stats.latencyNanos[i];
                 }
             }
-        } else {
-            System.out.println("One or both accounts not found.");
+            printRow(out, String.valueOf((char) op), latencies, count);
+        }
+        printRow(out, "all", stats.latencyNanos.clone(), n);
+        StringBuilder results = new StringBuilder("Results:");
+        for (BankResult r : BankResult.values()) {
+            long count = stats.results.get(r.ordinal());
+            if (count > 0) {
+                results.append(' ').append(r).append('=').append(count);
+            }
+        }
+        out.println(results);
+    }
+
+    private static void printRow(PrintStream out, String label, long[] latencies, int count) {
+        if (count == 0) {
+            return;
         }
+        Arrays.sort(latencies, 0, count);
+        out.printf("%-9s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", label, count,
+                percentile(latencies, count, 0.50), percentile(latencies, count, 0.90),
+                percentile(latencies, count, 0.99), percentile(latencies, count, 0.999),
+                latencies[count - 1] / 1e3);
+    }
+
+    // Nearest-rank percentile of the first count sorted values, in microseconds
+    private static double percentile(long[] sorted, int count, double p) {
+        int rank = (int) Math.ceil(p * count);
+        return sorted[Math.max(0, rank - 1)] / 1e3;
     }
 }
 
 // Main class with menu
 public class BankManagementSystem {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("dedup")) {
+            dedupCheck(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("replay")) {
+            replay(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("record")) {
+            record(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("reads")) {
+            readBenchmark(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("reconcile")) {
+            reconcileCheck(args);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         Bank bank = new Bank();
 
@@ -134,7 +1398,9 @@ public class BankManagementSystem {
                 System.out.println("3. Withdraw Money");
                 System.out.println("4. Check Balance");
                 System.out.println("5. Transfer Money");
-                System.out.println("6. Exit");
+                System.out.println("6. List All Accounts");
+                System.out.println("7. End-of-Day Reconciliation");
+                System.out.println("8. Exit");
                 System.out.print("Choose an option: ");
                 int choice = scanner.nextInt();
 
@@ -147,7 +1413,14 @@ public class BankManagementSystem {
                         String name = scanner.nextLine();
                         System.out.print("Enter Initial Balance: ");
                         double initBalance = scanner.nextDouble();
-                        bank.createAccount(accNum, name, initBalance);
+                        BankResult created = bank.createAccount(accNum, name, initBalance).join();
+                        if (created == BankResult.SUCCESS) {
+                            System.out.println("Account created successfully.");
+                        } else if (created == BankResult.DUPLICATE_ACCOUNT) {
+                            System.out.println("Account number already exists.");
+                        } else {
+                            System.out.println("Initial balance must be zero or more, in whole cents.");
+                        }
                         break;
 
                     case 2:
@@ -155,11 +1428,13 @@ public class BankManagementSystem {
                         int depAccNum = scanner.nextInt();
                         System.out.print("Enter Deposit Amount: ");
                         double depAmount = scanner.nextDouble();
-                        BankAccount depAccount = bank.findAccount(depAccNum);
-                        if (depAccount != null) {
-                            depAccount.deposit(depAmount);
-                        } else {
+                        BankResult deposited = bank.deposit(depAccNum, depAmount).join();
+                        if (deposited == BankResult.SUCCESS) {
+                            System.out.println("Successfully deposited: " + depAmount);
+                        } else if (deposited == BankResult.ACCOUNT_NOT_FOUND) {
                             System.out.println("Account not found.");
+                        } else {
+                            System.out.println("Deposit amount must be positive, in whole cents.");
                         }
                         break;
 
@@ -168,20 +1443,24 @@ public class BankManagementSystem {
                         int witAccNum = scanner.nextInt();
                         System.out.print("Enter Withdraw Amount: ");
                         double witAmount = scanner.nextDouble();
-                        BankAccount witAccount = bank.findAccount(witAccNum);
-                        if (witAccount != null) {
-                            witAccount.withdraw(witAmount);
-                        } else {
+                        BankResult withdrawn = bank.withdraw(witAccNum, witAmount).join();
+                        if (withdrawn == BankResult.SUCCESS) {
+                            System.out.println("Successfully withdrawn: " + witAmount);
+                        } else if (withdrawn == BankResult.ACCOUNT_NOT_FOUND) {
                             System.out.println("Account not found.");
+                        } else {
+                            System.out.println("Insufficient balance or invalid amount.");
                         }
                         break;
 
                     case 4:
                         System.out.print("Enter Account Number: ");
                         int balAccNum = scanner.nextInt();
-                        BankAccount balAccount = bank.findAccount(balAccNum);
-                        if (balAccount != null) {
-                            balAccount.checkBalance();
+                        OptionalDouble balance = bank.checkBalance(balAccNum);
+                        if (balance.isPresent()) {
+                            System.out.println("Account Number: " + balAccNum);
+                            System.out.println("Account Holder: " + bank.accountHolder(balAccNum));
+                            System.out.println("Current Balance: " + balance.getAsDouble());
                         } else {
                             System.out.println("Account not found.");
                         }
@@ -194,21 +1473,357 @@ public class BankManagementSystem {
                         int toAcc = scanner.nextInt();
                         System.out.print("Enter Transfer Amount: ");
                         double transferAmount = scanner.nextDouble();
-                        bank.transferMoney(fromAcc, toAcc, transferAmount);
+                        printTransferResult(bank.transferMoney(fromAcc, toAcc, transferAmount).join(), transferAmount);
                         break;
 
                     case 6:
+                        List<BankAccount> all = bank.listAccounts();
+                        for (BankAccount account : all) {
+                            System.out.println(account.getAccountNumber() + "  " + account.getAccountHolderName()
+                                    + "  " + account.getBalance());
+                        }
+                        System.out.println(all.size() + " account(s).");
+                        break;
+
+                    case 7:
+                        scanner.nextLine(); // consume newline
+                        System.out.print("Export CSV to (blank for none): ");
+                        String exportPath = scanner.nextLine().trim();
+                        ReconciliationReport report = bank.reconcile(exportPath.isEmpty() ? null : Paths.get(exportPath));
+                        System.out.printf("Snapshot %d: %d account(s), total %.2f, in transit %.2f, expected %.2f%n",
+                                report.epoch, report.accounts, report.totalCents / 100.0,
+                                report.inFlightCents / 100.0, report.expectedCents / 100.0);
+                        System.out.println("Checksum: " + Long.toHexString(report.checksum));
+                        System.out.println(report.isBalanced() ? "Books balance." : "Books DO NOT balance!");
+                        if (!exportPath.isEmpty()) {
+                            System.out.println("Exported to " + exportPath);
+                        }
+                        break;
+
+                    case 8:
                         System.out.println("Exiting... Thank you for using Online Banking System.");
+                        bank.shutdown();
                         System.exit(0);
                         break;
 
                     default:
                         System.out.println("Invalid option. Try again.");
                 }
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Exception e) {
                 System.out.println("Invalid input. Please try again.");
                 scanner.nextLine(); // clear buffer
             }
         }
     }
+
+    // Print the outcome of a transfer
+    private static void printTransferResult(BankResult result, double amount) {
+        switch (result) {
+            case SUCCESS:
+                System.out.println("Transfer successful: " + amount);
+                break;
+            case ACCOUNT_NOT_FOUND:
+                System.out.println("One or both accounts not found.");
+                break;
+            case SAME_ACCOUNT:
+                System.out.println("Cannot transfer to the same account.");
+                break;
+            case INVALID_AMOUNT:
+                System.out.println("Invalid amount (must be positive, in whole cents).");
+                break;
+            case REQUEST_ID_CONFLICT:
+                System.out.println("Request id was already used for a different transfer.");
+                break;
+            default:
+                System.out.println("Transfer failed. Insufficient funds.");
+        }
+    }
+
+    // Load test: java BankManagementSystem bench [shards] [accounts] [transfers]
+    // Random transfers are pipelined into the shards; total money must be unchanged.
+    private static void benchmark(String[] args) throws InterruptedException {
+        int shardCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int transfers = args.length > 3 ? Integer.parseInt(args[3]) : 2_000_000;
+        Bank bank = new Bank(shardCount);
+        for (int i = 0; i < accountCount; i++) {
+            bank.createAccount(i, "Holder " + i, 1000);
+        }
+        double before = bank.totalBalance();
+
+        Semaphore window = new Semaphore(10_000);   // bounds the operations in flight
+        AtomicInteger succeeded = new AtomicInteger();
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < transfers; i++) {
+            window.acquire();
+            bank.transferMoney(random.nextInt(accountCount), random.nextInt(accountCount), 1 + random.nextInt(500))
+                    .whenComplete((r, e) -> {
+                        if (r == BankResult.SUCCESS) {
+                            succeeded.incrementAndGet();
+                        }
+                        window.release();
+                    });
+        }
+        window.acquire(10_000);
+        long elapsed = System.nanoTime() - start;
+        double after = bank.totalBalance();
+        bank.shutdown();
+
+        System.out.printf("%d shard(s): %d transfers (%d succeeded) in %.2f s, %.0f transfers/s%n",
+                shardCount, transfers, succeeded.get(), elapsed / 1e9, transfers / (elapsed / 1e9));
+        System.out.println(before == after ? "PASS: money conserved (" + after + ")"
+                : "FAIL: total changed from " + before + " to " + after);
+    }
+
+    // Retry storm: java BankManagementSystem dedup [requests] [capacity]
+    // Every transfer is sent three times with the same request id; money must move once per id
+    // and the cache must stay within its capacity.
+    private static void dedupCheck(String[] args) throws InterruptedException {
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        Bank bank = new Bank(Runtime.getRuntime().availableProcessors(), capacity, TimeUnit.MINUTES.toMillis(10));
+        bank.createAccount(1, "Payer", requests).join();
+        bank.createAccount(2, "Payee", 0).join();
+
+        Semaphore window = new Semaphore(5_000);
+        int maxSize = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            String id = "req-" + i;
+            for (int attempt = 0; attempt < 3; attempt++) {
+                window.acquire();
+                bank.transferMoney(id, 1, 2, 1).whenComplete((r, e) -> window.release());
+            }
+            if ((i & 1023) == 0) {
+                maxSize = Math.max(maxSize, bank.dedupCache().size());
+            }
+        }
+        window.acquire(5_000);
+        long elapsed = System.nanoTime() - start;
+        double received = bank.findAccount(2).join().getBalance();
+        bank.shutdown();
+
+        System.out.printf("%d requests x 3 attempts in %.2f s (%.0f calls/s), %d answered from cache%n",
+                requests, elapsed / 1e9, 3.0 * requests / (elapsed / 1e9), bank.dedupCache().hits());
+        System.out.println("Largest cache size seen: " + maxSize + " (capacity " + capacity + ")");
+        System.out.println(received == requests ? "PASS: each request moved money exactly once"
+                : "FAIL: payee received " + received + " for " + requests + " requests");
+    }
+
+    // Reconcile repeatedly while a pipelined load of deposits, withdrawals and
+    // cross-shard transfers is running; every snapshot must balance to the cent.
+    // Usage: reconcile [accounts] [operations] [snapshots]
+    private static void reconcileCheck(String[] args) throws InterruptedException, IOException {
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+        int snapshots = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        Bank bank = new Bank(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        for (int i = 0; i < accounts; i++) {
+            bank.createAccount(i, "Holder " + i, 100);
+        }
+        bank.totalBalance();   // waits for the accounts to be created
+
+        AtomicInteger failures = new AtomicInteger();
+        List<ReconciliationReport> reports = new ArrayList<>();
+        Thread auditor = new Thread(() -> {
+            try {
+                for (int i = 0; i < snapshots; i++) {
+                    ReconciliationReport report = bank.reconcile(null);
+                    reports.add(report);
+                    if (!report.isBalanced()) {
+                        failures.incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        Semaphore window = new Semaphore(10_000);
+        Random random = new java.util.Random(42);
+        long start = System.nanoTime();
+        auditor.start();
+        for (int i = 0; i < operations; i++) {
+            int from = random.nextInt(accounts);
+            int amount = 1 + random.nextInt(20);
+            window.acquire();
+            CompletableFuture<BankResult> op;
+            switch (i % 8) {
+                case 0: op = bank.deposit(from, amount); break;
+                case 1: op = bank.withdraw(from, amount); break;
+                // a missing receiver now and then exercises the refund path
+                case 2: op = bank.transferMoney(from, accounts + random.nextInt(10), amount); break;
+                default: op = bank.transferMoney(from, random.nextInt(accounts), amount);
+            }
+            op.whenComplete((r, e) -> window.release());
+        }
+        auditor.join();
+        window.acquire(10_000);
+        long elapsed = System.nanoTime() - start;
+        ReconciliationReport last = bank.reconcile(exportTarget(args));
+        reports.add(last);
+        if (!last.isBalanced() || last.inFlightCents != 0) {
+            failures.incrementAndGet();
+        }
+        bank.shutdown();
+
+        long cutMax = 0;
+        long elapsedMax = 0;
+        long inFlightMax = 0;
+        for (ReconciliationReport report : reports) {
+            cutMax = Math.max(cutMax, report.cutNanos);
+            elapsedMax = Math.max(elapsedMax, report.elapsedNanos);
+            inFlightMax = Math.max(inFlightMax, report.inFlightCents);
+        }
+        System.out.printf("%d operations in %.2f s (%.0f ops/s) with %d snapshots of %d accounts%n",
+                operations, elapsed / 1e9, operations / (elapsed / 1e9), reports.size(), accounts);
+        System.out.printf("Slowest cut %.2f ms, slowest reconciliation %.2f ms, most in transit %.2f%n",
+                cutMax / 1e6, elapsedMax / 1e6, inFlightMax / 100.0);
+        System.out.println(failures.get() == 0 ? "PASS: every snapshot balanced"
+                : "FAIL: " + failures.get() + " snapshot(s) did not balance");
+    }
+
+    private static Path exportTarget(String[] args) {
+        return args.length > 4 ? Paths.get(args[4]) : null;
+    }
+
+    // Replay a recorded command stream ("-" reads standard input)
+    // Usage: replay <file> [window] [shards]
+    private static void replay(String[] args) throws InterruptedException, IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: replay <file|-> [window] [shards]");
+            return;
+        }
+        int window = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        int shardCount = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long parseStart = System.nanoTime();
+        CommandLog log;
+        try (InputStream in = args[1].equals("-") ? System.in : Files.newInputStream(Paths.get(args[1]))) {
+            log = CommandLog.read(in);
+        } catch (IllegalArgumentException e) {
+            System.out.println(args[1] + ": " + e.getMessage());
+            return;
+        }
+        long parseNanos = System.nanoTime() - parseStart;
+        System.out.printf("Parsed %d commands in %.3f s (%.0f commands/s)%n",
+                log.size(), parseNanos / 1e9, log.size() / (parseNanos / 1e9));
+
+        Bank bank = new Bank(shardCount);
+        ReplayDriver.Stats stats = new ReplayDriver(bank, window).replay(log);
+        bank.shutdown();
+        System.out.printf("%d shard(s), %d in flight: ", shardCount, window);
+        ReplayDriver.report(stats, System.out);
+    }
+
+    // Write a synthetic command stream for replay: accounts are created first,
+    // then a mix of 50% transfers (1 in 20 with a request id, retried now and
+    // then), 20% balance checks, 15% deposits and 15% withdrawals.
+    // Usage: record <file> [accounts] [operations] [seed]
+    private static void record(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: record <file> [accounts] [operations] [seed]");
+            return;
+        }
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int operations = args.length > 3 ? Integer.parseInt(args[3]) : 2_000_000;
+        Random random = new Random(args.length > 4 ? Long.parseLong(args[4]) : 42);
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            out.write("# " + accounts + " accounts, " + operations + " operations\n");
+            for (int i = 0; i < accounts; i++) {
+                out.write("C " + i + " 1000 Holder " + i + "\n");
+            }
+            String lastRequest = null;   // the last transfer sent with a request id
+            for (int i = 0; i < operations; i++) {
+                int account = random.nextInt(accounts);
+                int kind = random.nextInt(20);
+                String amount = (1 + random.nextInt(500)) + "." + random.nextInt(10) + random.nextInt(10);
+                if (kind < 10) {
+                    String transfer = "T " + account + " " + random.nextInt(accounts) + " " + amount;
+                    if (kind == 0) {
+                        lastRequest = transfer + " r" + i;
+                        out.write(lastRequest);
+                    } else if (kind == 1 && lastRequest != null) {
+                        out.write(lastRequest);   // a client retrying
+                    } else {
+                        out.write(transfer);
+                    }
+                } else if (kind < 14) {
+                    out.write("B " + account);
+                } else if (kind < 17) {
+                    out.write("D " + account + " " + amount);
+                } else {
+                    out.write("W " + account + " " + amount);
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    // Balance checks from several reader threads while a pipelined writer runs
+    // transfers, first through the read model and then through the shard
+    // mailboxes; afterwards every view must converge within the staleness bound.
+    // Usage: reads [readers] [seconds] [stalenessMillis] [accounts]
+    private static void readBenchmark(String[] args) throws InterruptedException {
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long staleness = args.length > 3 ? Long.parseLong(args[3]) : 20;
+        int accounts = args.length > 4 ? Integer.parseInt(args[4]) : 100_000;
+        for (boolean viaView : new boolean[] {true, false}) {
+            Bank bank = new Bank(Runtime.getRuntime().availableProcessors(), 100_000,
+                    TimeUnit.MINUTES.toMillis(10), staleness);
+            for (int i = 0; i < accounts; i++) {
+                bank.createAccount(i, "Holder " + i, 1000);
+            }
+            bank.totalBalance();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            LongAdder reads = new LongAdder();
+            Thread[] threads = new Thread[readers];
+            for (int r = 0; r < readers; r++) {
+                Random random = new Random(r);
+                threads[r] = new Thread(() -> {
+                    long count = 0;
+                    while ((count & 255) != 0 || System.nanoTime() < deadline) {
+                        int account = random.nextInt(accounts);
+                        if (viaView) {
+                            bank.checkBalance(account);
+                        } else {
+                            bank.findAccount(account).join();
+                        }
+                        count++;
+                    }
+                    reads.add(count);
+                });
+                threads[r].start();
+            }
+            Semaphore window = new Semaphore(1_000);
+            Random random = new Random(42);
+            long writes = 0;
+            while (System.nanoTime() < deadline) {
+                window.acquire();
+                bank.transferMoney(random.nextInt(accounts), random.nextInt(accounts), 1 + random.nextInt(50))
+                        .whenComplete((r, e) -> window.release());
+                writes++;
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            window.acquire(1_000);
+
+            Thread.sleep(2 * staleness + 10);
+            int mismatches = 0;
+            for (BankAccount account : bank.listAccounts()) {
+                if (bank.checkBalance(account.getAccountNumber()).getAsDouble() != account.getBalance()) {
+                    mismatches++;
+                }
+            }
+            bank.shutdown();
+            System.out.printf("%-14s %d reader(s): %.0f reads/s, %.0f transfers/s; view converged: %s%n",
+                    viaView ? "read model" : "shard mailbox", readers, reads.sum() / (double) seconds,
+                    writes / (double) seconds, mismatches == 0 ? "PASS" : "FAIL (" + mismatches + " stale)");
+        }
+    }
 }
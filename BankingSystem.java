@@ -1,88 +1,2706 @@
 
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * TxResult enum
+ * Outcome of an account operation.
+ */
+enum TxResult {
+    OK,
+    INVALID_AMOUNT,
+    INSUFFICIENT_FUNDS,
+    SAME_ACCOUNT,
+    LIMIT_EXCEEDED
+}
+
+/**
+ * Money class
+ * Fixed-point helpers for amounts held as long paisa (100 paisa = Rs. 1).
+ * Parsing never goes through double, formatting appends into a caller-supplied
+ * StringBuilder, and rounding is explicit (half-even).
+ */
+final class Money {
+    static final long PAISA_PER_RUPEE = 100;
+
+    private Money() {
+    }
+
+    // Parse "125", "125.5" or "125.50" into paisa; at most two decimal places
+    static long parse(String text) {
+        int len = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long rupees = 0;
+        int digits = 0;
+        try {
+            for (; i < len && text.charAt(i) != '.'; i++, digits++) {
+                rupees = Math.addExact(Math.multiplyExact(rupees, 10), digit(text, i));
+            }
+            long paisa = 0;
+            int decimals = 0;
+            if (i < len) {
+                for (i++; i < len; i++, decimals++, digits++) {
+                    if (decimals == 2) {
+                        throw new NumberFormatException("At most 2 decimal places allowed: " + text);
+                    }
+                    paisa = paisa * 10 + digit(text, i);
+                }
+                if (decimals == 1) paisa *= 10;
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Not an amount: " + text);
+            }
+            long value = Math.addExact(Math.multiplyExact(rupees, PAISA_PER_RUPEE), paisa);
+            return negative ? -value : value;
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount too large: " + text);
+        }
+    }
+
+    private static int digit(String text, int i) {
+        char c = text.charAt(i);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Not an amount: " + text);
+        }
+        return c - '0';
+    }
+
+    // Append paisa as rupees with two decimals (e.g. 1234.50) without allocating
+    static StringBuilder appendTo(StringBuilder sb, long paisa) {
+        long rupees = paisa / PAISA_PER_RUPEE;
+        int cents = (int) Math.abs(paisa % PAISA_PER_RUPEE);
+        if (paisa < 0 && rupees == 0) {
+            sb.append('-');
+        }
+        sb.append(rupees).append('.');
+        if (cents < 10) {
+            sb.append('0');
+        }
+        return sb.append(cents);
+    }
+
+    static String format(long paisa) {
+        return appendTo(new StringBuilder(24), paisa).toString();
+    }
+
+    // value * numerator / denominator, rounded half-even (denominator > 0)
+    static long mulDivHalfEven(long value, long numerator, long denominator) {
+        long product;
+        try {
+            product = Math.multiplyExact(value, numerator);
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(value).multiply(BigDecimal.valueOf(numerator))
+                    .divide(BigDecimal.valueOf(denominator), 0, RoundingMode.HALF_EVEN).longValueExact();
+        }
+        long quotient = product / denominator;
+        long remainder = Math.abs(product % denominator);
+        long twice = remainder * 2;   // remainder < denominator, so this cannot overflow for sane denominators
+        if (twice > denominator || (twice == denominator && (quotient & 1) != 0)) {
+            quotient += product < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
+
+/**
+ * AuditEvent class
+ * One audit record. Instances are ring-buffer slots reused by AuditLog, so a
+ * subscriber must copy anything it keeps beyond its onEvent call.
+ */
+final class AuditEvent {
+    enum Type { DEPOSIT, WITHDRAW, TRANSFER, INTEREST }
+
+    long timestamp;              // epoch millis
+    Type type;
+    TxResult result;
+    BankAccount account;
+    BankAccount counterparty;    // transfer target, null otherwise
+    long amount;                 // paisa
+    long balance;                // account balance after the operation
+    long counterpartyBalance;    // target balance after a transfer
+
+    // Append a one-line key=value rendering without allocating
+    StringBuilder appendTo(StringBuilder sb) {
+        sb.append("ts=").append(timestamp)
+                .append(" op=").append(type.name())
+                .append(" result=").append(result.name())
+                .append(" account=").append(account.accountNumber);
+        if (counterparty != null) {
+            sb.append(" to=").append(counterparty.accountNumber);
+        }
+        Money.appendTo(sb.append(" amount="), amount);
+        Money.appendTo(sb.append(" balance="), balance);
+        if (counterparty != null && result == TxResult.OK) {
+            Money.appendTo(sb.append(" toBalance="), counterpartyBalance);
+        }
+        return sb;
+    }
+}
+
+/**
+ * AuditSubscriber interface
+ * Receives audit events on the AuditLog writer thread, in publication order.
+ */
+interface AuditSubscriber extends Closeable {
+    void onEvent(AuditEvent event);
+
+    // Called after each drained batch, e.g. to write buffered output
+    default void onBatchEnd() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
+
+/**
+ * AuditLog class
+ * Multi-producer, single-consumer ring buffer of preallocated AuditEvent slots.
+ * Producers claim a sequence with a CAS, fill the slot and publish it with a
+ * release store; they never take a lock or touch I/O (they only spin if the
+ * ring is full). A background writer drains published events in batches and
+ * hands them to the subscribers.
+ */
+class AuditLog implements Closeable {
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int MAX_BATCH = 4096;
+    private static final long BUSY_PARK_NANOS = 50_000;
+    private static final long IDLE_PARK_NANOS = 100_000_000;   // flush, close and a full ring unpark the writer
+
+    private final AuditEvent[] slots;
+    private final long[] published;           // sequence stored in each slot, -1 if never used
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();   // next sequence to hand out
+    private volatile long consumed;           // next sequence the writer will read
+    private volatile boolean running = true;
+    private final List<AuditSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final LongAdder fullRingSpins = new LongAdder();
+    private final Thread writer;
+
+    public AuditLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new AuditEvent[size];
+        published = new long[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new AuditEvent();
+            published[i] = -1;
+        }
+        mask = size - 1;
+        writer = new Thread(this::drainLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void subscribe(AuditSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    // Times a producer found the ring full and had to wait for the writer
+    public long fullRingSpins() {
+        return fullRingSpins.sum();
+    }
+
+    public void publish(AuditEvent.Type type, TxResult result, BankAccount account, BankAccount counterparty,
+                        long amount, long balance, long counterpartyBalance) {
+        long seq;
+        int spins = 0;
+        while (true) {
+            seq = claimed.get();
+            if (seq - consumed >= slots.length) {
+                fullRingSpins.increment();
+                if (++spins < 64) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.unpark(writer);   // it may be in an idle park
+                    Thread.yield();   // let the writer run, even on a single core
+                }
+            } else if (claimed.compareAndSet(seq, seq + 1)) {
+                break;
+            }
+        }
+        AuditEvent e = slots[(int) seq & mask];
+        e.timestamp = System.currentTimeMillis();
+        e.type = type;
+        e.result = result;
+        e.account = account;
+        e.counterparty = counterparty;
+        e.amount = amount;
+        e.balance = balance;
+        e.counterpartyBalance = counterpartyBalance;
+        PUBLISHED.setRelease(published, (int) seq & mask, seq);
+    }
+
+    // Block until everything published before this call has been handed to subscribers
+    public void flush() {
+        long target = claimed.get();
+        LockSupport.unpark(writer);
+        while (consumed < target && writer.isAlive()) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private void drainLoop() {
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            long end = drainBatch(next);
+            if (end != next) {
+                next = end;
+                consumed = next;   // frees the slots for producers
+                idle = 0;
+            } else if (!running && claimed.get() == next) {
+                return;
+            } else if (++idle < 100) {
+                Thread.onSpinWait();
+            } else if (idle < 1_100) {
+                LockSupport.parkNanos(BUSY_PARK_NANOS);   // short parks for the first ~50 ms of quiet
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);   // then about ten wakeups a second
+            }
+        }
+    }
+
+    // Hand up to MAX_BATCH published events from next onwards to the subscribers;
+    // returns the first sequence not consumed
+    private long drainBatch(long next) {
+        long limit = next + MAX_BATCH;
+        long seq = next;
+        while (seq < limit && (long) PUBLISHED.getAcquire(published, (int) seq & mask) == seq) {
+            AuditEvent e = slots[(int) seq & mask];
+            for (AuditSubscriber s : subscribers) {
+                try {
+                    s.onEvent(e);
+                } catch (RuntimeException ex) {
+                    System.err.println("Audit subscriber failed: " + ex);
+                }
+            }
+            seq++;
+        }
+        if (seq != next) {
+            for (AuditSubscriber s : subscribers) {
+                try {
+                    s.onBatchEnd();
+                } catch (IOException | RuntimeException ex) {
+                    System.err.println("Audit subscriber failed: " + ex);
+                }
+            }
+        }
+        return seq;
+    }
+
+    // Drain what is left, stop the writer and close the subscribers
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (AuditSubscriber s : subscribers) {
+            s.close();
+        }
+    }
+}
+
+/**
+ * RotatingAuditFile class
+ * Audit subscriber that appends one line per event to audit.log, writing each
+ * drained batch with a single FileChannel write. When the file passes maxBytes
+ * it is renamed to audit.log.1 (older files shift up) and a new one is started.
+ */
+class RotatingAuditFile implements AuditSubscriber {
+    private final Path file;
+    private final long maxBytes;
+    private final int keepFiles;
+    private final StringBuilder line = new StringBuilder(160);
+    private char[] chars = new char[160];
+    private final byte[] out = new byte[1 << 20];      // UTF-8 of the current batch
+    private final ByteBuffer outBuffer = ByteBuffer.wrap(out);
+    private int pos;
+    private FileChannel channel;
+    private long size;
+
+    public RotatingAuditFile(Path dir, long maxBytes, int keepFiles) throws IOException {
+        Files.createDirectories(dir);
+        this.file = dir.resolve("audit.log");
+        this.maxBytes = maxBytes;
+        this.keepFiles = keepFiles;
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    @Override
+    public void onEvent(AuditEvent event) {
+        line.setLength(0);
+        event.appendTo(line).append('\n');
+        if (out.length - pos < line.length() * 3) {
+            try {
+                onBatchEnd();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int len = line.length();
+        if (chars.length < len) {
+            chars = new char[len * 2];
+        }
+        line.getChars(0, len, chars, 0);
+        char[] cs = chars;
+        byte[] b = out;
+        int p = pos;
+        for (int i = 0; i < len; i++) {
+            char c = cs[i];
+            if (c < 0x80) {
+                b[p++] = (byte) c;
+            } else {
+                pos = p;
+                putUtf8(c, i + 1 < len ? cs[i + 1] : 0);
+                p = pos;
+                if (Character.isHighSurrogate(c)) i++;
+            }
+        }
+        pos = p;
+    }
+
+    // Encode one non-ASCII character (or surrogate pair)
+    private void putUtf8(char c, char next) {
+        byte[] b = out;
+        if (c < 0x800) {
+            b[pos++] = (byte) (0xC0 | (c >> 6));
+            b[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && Character.isLowSurrogate(next)) {
+            int cp = Character.toCodePoint(c, next);
+            b[pos++] = (byte) (0xF0 | (cp >> 18));
+            b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            b[pos++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            b[pos++] = (byte) (0xE0 | (c >> 12));
+            b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            b[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    @Override
+    public void onBatchEnd() throws IOException {
+        outBuffer.limit(pos).position(0);
+        while (outBuffer.hasRemaining()) {
+            size += channel.write(outBuffer);
+        }
+        pos = 0;
+        if (size >= maxBytes) {
+            rotate();
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file.resolveSibling("audit.log." + keepFiles));
+        for (int i = keepFiles - 1; i >= 1; i--) {
+            Path older = file.resolveSibling("audit.log." + i);
+            if (Files.exists(older)) {
+                Files.move(older, file.resolveSibling("audit.log." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, file.resolveSibling("audit.log.1"), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    @Override
+    public void close() throws IOException {
+        onBatchEnd();
+        channel.close();
+    }
+}
+
+/**
+ * ConsoleAuditSubscriber class
+ * Optional audit subscriber that echoes every event to the console.
+ */
+class ConsoleAuditSubscriber implements AuditSubscriber {
+    private final StringBuilder line = new StringBuilder(160);
+
+    @Override
+    public void onEvent(AuditEvent event) {
+        line.setLength(0);
+        System.out.println(event.appendTo(line.append("[audit] ")));
+    }
+}
+
+/**
+ * HistoryStore class
+ * Per-account transaction history, fed by the AuditLog. Successful operations
+ * are appended as fixed-width records to memory-mapped segment files in time
+ * order, and every account keeps an index of its own record numbers and
+ * timestamps. A statement binary-searches that index for its start date and
+ * then reads only the account's records, so its cost follows the number of
+ * transactions in the range rather than the size of the history.
+ */
+class HistoryStore implements AuditSubscriber {
+    private static final int RECORD_BYTES = 48;
+    private static final int SEGMENT_BITS = 18;                 // 256K records (12 MB) per segment file
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_BITS;
+    private static final int NONE = -1;
+    private static final AuditEvent.Type[] TYPES = AuditEvent.Type.values();
+
+    // Record layout: offsets within a record
+    private static final int TIME = 0;
+    private static final int ACCOUNT = 8;
+    private static final int COUNTERPARTY = 12;
+    private static final int TYPE = 16;
+    private static final int AMOUNT = 24;
+    private static final int BALANCE = 32;
+    private static final int COUNTERPARTY_BALANCE = 40;
+
+    private final Path dir;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, AccountIndex> indexes = new ConcurrentHashMap<>();
+    private volatile AccountIndex[] byId = new AccountIndex[64];
+    private int accountCount;
+    private final FileChannel names;       // accounts.dat: id order, short length + UTF-8
+    private final ByteArrayOutputStream pendingNames = new ByteArrayOutputStream();
+    private long count;                    // records written
+    private long lastTimestamp;
+
+    // Record numbers and timestamps of one account, oldest first. Appended by the
+    // writer thread only; readers see a prefix published by the volatile size.
+    static final class AccountIndex {
+        final int id;
+        final String accountNumber;
+        private long[] times = new long[4];
+        private long[] records = new long[4];
+        private volatile int size;
+
+        AccountIndex(int id, String accountNumber) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+        }
+
+        void add(long time, long record) {
+            int n = size;
+            if (n == times.length) {
+                times = Arrays.copyOf(times, n * 2);
+                records = Arrays.copyOf(records, n * 2);
+            }
+            times[n] = time;
+            records[n] = record;
+            size = n + 1;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /** One statement line, seen from the statement's account. Reused between calls. */
+    static final class Entry {
+        long timestamp;
+        AuditEvent.Type type;
+        long amount;                // positive for money in, negative for money out
+        long balance;               // account balance after the transaction
+        String counterparty;        // other account of a transfer, null otherwise
+    }
+
+    private HistoryStore(Path dir, FileChannel names) {
+        this.dir = dir;
+        this.names = names;
+    }
+
+    // Open the history in dir, rebuilding the account indexes from its segments
+    public static HistoryStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path namesFile = dir.resolve("accounts.dat");
+        byte[] saved = Files.exists(namesFile) ? Files.readAllBytes(namesFile) : new byte[0];
+        FileChannel names = FileChannel.open(namesFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        HistoryStore store = new HistoryStore(dir, names);
+        try {
+            store.loadNames(ByteBuffer.wrap(saved));
+            store.loadSegments();
+        } catch (IOException | RuntimeException e) {
+            names.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void loadNames(ByteBuffer all) throws IOException {
+        while (all.remaining() >= 2) {
+            int len = all.getShort(all.position()) & 0xFFFF;
+            if (all.remaining() < 2 + len) {
+                break;   // torn last entry
+            }
+            byte[] utf8 = new byte[len];
+            all.position(all.position() + 2);
+            all.get(utf8);
+            register(new String(utf8, StandardCharsets.UTF_8));
+        }
+        names.truncate(all.position());
+        names.position(all.position());
+    }
+
+    private void loadSegments() throws IOException {
+        for (int s = 0; Files.exists(segmentPath(s)); s++) {
+            MappedByteBuffer seg = map(s);
+            segments.add(seg);
+            for (int r = 0; r < SEGMENT_RECORDS; r++) {
+                int off = r * RECORD_BYTES;
+                long time = seg.getLong(off + TIME);
+                int account = seg.getInt(off + ACCOUNT);
+                int other = seg.getInt(off + COUNTERPARTY);
+                if (time == 0) {
+                    return;
+                }
+                if (account >= accountCount || other >= accountCount) {
+                    // Written after its account name was lost in a crash: drop the tail
+                    for (int o = off; o < SEGMENT_RECORDS * RECORD_BYTES; o += 8) {
+                        seg.putLong(o, 0);
+                    }
+                    int later = s + 1;
+                    while (Files.deleteIfExists(segmentPath(later))) {
+                        later++;
+                    }
+                    return;
+                }
+                byId[account].add(time, count);
+                if (other != NONE) {
+                    byId[other].add(time, count);
+                }
+                lastTimestamp = time;
+                count++;
+            }
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return dir.resolve(String.format("history-%06d.seg", segment));
+    }
+
+    private MappedByteBuffer map(int segment) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, (long) SEGMENT_RECORDS * RECORD_BYTES);
+        }
+    }
+
+    private AccountIndex register(String accountNumber) {
+        AccountIndex index = new AccountIndex(accountCount, accountNumber);
+        AccountIndex[] ids = byId;
+        if (accountCount == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[accountCount++] = index;
+        byId = ids;
+        indexes.put(accountNumber, index);
+        return index;
+    }
+
+    private AccountIndex indexFor(BankAccount account) {
+        AccountIndex index = indexes.get(account.accountNumber);
+        if (index == null) {
+            index = register(account.accountNumber);
+            byte[] utf8 = account.accountNumber.getBytes(StandardCharsets.UTF_8);
+            pendingNames.write(utf8.length >>> 8);
+            pendingNames.write(utf8.length);
+            pendingNames.write(utf8, 0, utf8.length);
+        }
+        return index;
+    }
+
+    @Override
+    public void onEvent(AuditEvent e) {
+        if (e.result != TxResult.OK) {
+            return;   // rejected operations stay in the audit log only
+        }
+        int segment = (int) (count >>> SEGMENT_BITS);
+        if (segment == segments.size()) {
+            try {
+                segments.add(map(segment));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        AccountIndex account = indexFor(e.account);
+        AccountIndex other = e.counterparty == null ? null : indexFor(e.counterparty);
+        long time = Math.max(Math.max(e.timestamp, 1), lastTimestamp);   // keeps every index sorted
+        lastTimestamp = time;
+
+        MappedByteBuffer seg = segments.get(segment);
+        int off = (int) (count & (SEGMENT_RECORDS - 1)) * RECORD_BYTES;
+        seg.putInt(off + ACCOUNT, account.id);
+        seg.putInt(off + COUNTERPARTY, other == null ? NONE : other.id);
+        seg.put(off + TYPE, (byte) e.type.ordinal());
+        seg.putLong(off + AMOUNT, e.amount);
+        seg.putLong(off + BALANCE, e.balance);
+        seg.putLong(off + COUNTERPARTY_BALANCE, e.counterpartyBalance);
+        seg.putLong(off + TIME, time);   // non-zero time marks the record as present
+
+        account.add(time, count);
+        if (other != null) {
+            other.add(time, count);
+        }
+        count++;
+    }
+
+    @Override
+    public void onBatchEnd() throws IOException {
+        if (pendingNames.size() > 0) {
+            ByteBuffer buf = ByteBuffer.wrap(pendingNames.toByteArray());
+            while (buf.hasRemaining()) {
+                names.write(buf);
+            }
+            pendingNames.reset();
+        }
+    }
+
+    // Number of recorded transactions of an account
+    public int transactionCount(String accountNumber) {
+        AccountIndex index = indexes.get(accountNumber);
+        return index == null ? 0 : index.size();
+    }
+
+    // Stream the account's transactions with fromMillis <= time < toMillis, oldest
+    // first; returns how many were passed to out
+    public int statement(String accountNumber, long fromMillis, long toMillis, Consumer<Entry> out) {
+        AccountIndex index = indexes.get(accountNumber);
+        if (index == null) {
+            return 0;
+        }
+        int n = index.size;
+        long[] times = index.times;
+        long[] records = index.records;
+
+        // Seek: first entry at or after fromMillis
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < fromMillis) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        Entry entry = new Entry();
+        AccountIndex[] ids = byId;
+        int emitted = 0;
+        for (int i = lo; i < n && times[i] < toMillis; i++) {
+            long record = records[i];
+            MappedByteBuffer seg = segments.get((int) (record >>> SEGMENT_BITS));
+            int off = (int) (record & (SEGMENT_RECORDS - 1)) * RECORD_BYTES;
+            int other = seg.getInt(off + COUNTERPARTY);
+            boolean incoming = seg.getInt(off + ACCOUNT) != index.id;
+            long amount = seg.getLong(off + AMOUNT);
+            entry.timestamp = times[i];
+            entry.type = TYPES[seg.get(off + TYPE)];
+            switch (entry.type) {
+                case WITHDRAW:
+                    amount = -amount;
+                    break;
+                case TRANSFER:
+                    if (!incoming) {
+                        amount = -amount;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            entry.amount = amount;
+            entry.balance = seg.getLong(off + (incoming ? COUNTERPARTY_BALANCE : BALANCE));
+            entry.counterparty = other == NONE ? null
+                    : ids[incoming ? seg.getInt(off + ACCOUNT) : other].accountNumber;
+            out.accept(entry);
+            emitted++;
+        }
+        return emitted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        onBatchEnd();
+        for (MappedByteBuffer seg : segments) {
+            seg.force();
+        }
+        names.close();
+    }
+}
+
+/**
+ * VelocityLimits class
+ * Immutable caps on an account's outgoing money (withdrawals and transfers out):
+ * total amount and number of operations in any rolling minute and in any rolling
+ * 24 hours. Zero means no cap.
+ */
+final class VelocityLimits {
+    static final VelocityLimits NONE = new VelocityLimits(0, 0, 0, 0);
+
+    final long maxAmountPerMinute;   // paisa
+    final long maxCountPerMinute;
+    final long maxAmountPerDay;      // paisa
+    final long maxCountPerDay;
+
+    public VelocityLimits(long maxAmountPerMinute, long maxCountPerMinute, long maxAmountPerDay, long maxCountPerDay) {
+        if (maxAmountPerMinute < 0 || maxCountPerMinute < 0 || maxAmountPerDay < 0 || maxCountPerDay < 0) {
+            throw new IllegalArgumentException("Limits cannot be negative");
+        }
+        this.maxAmountPerMinute = maxAmountPerMinute;
+        this.maxCountPerMinute = maxCountPerMinute;
+        this.maxAmountPerDay = maxAmountPerDay;
+        this.maxCountPerDay = maxCountPerDay;
+    }
+
+    public boolean isUnlimited() {
+        return maxAmountPerMinute == 0 && maxCountPerMinute == 0 && maxAmountPerDay == 0 && maxCountPerDay == 0;
+    }
+
+    public VelocityLimits withMinute(long maxAmount, long maxCount) {
+        return new VelocityLimits(maxAmount, maxCount, maxAmountPerDay, maxCountPerDay);
+    }
+
+    public VelocityLimits withDay(long maxAmount, long maxCount) {
+        return new VelocityLimits(maxAmountPerMinute, maxCountPerMinute, maxAmount, maxCount);
+    }
+}
+
+/**
+ * VelocityLimiter class
+ * Sliding-window counters enforcing one account's VelocityLimits. Each window is
+ * a ring of buckets (60 one-second buckets for the minute, 96 quarter-hour
+ * buckets for the day) with running totals, so a check is O(1) and allocates
+ * nothing. A bucket leaves the window as a whole, which errs on the strict side
+ * by at most one bucket. Methods synchronize on the limiter, i.e. per account.
+ */
+final class VelocityLimiter {
+    private final VelocityLimits limits;
+    private final Window minute = new Window(60, 1_000);
+    private final Window day = new Window(96, 15 * 60_000);
+
+    VelocityLimiter(VelocityLimits limits) {
+        this.limits = limits;
+    }
+
+    public VelocityLimits limits() {
+        return limits;
+    }
+
+    // Count an outgoing amount at time now, unless that would break a limit
+    public synchronized boolean tryAcquire(long amount, long now) {
+        minute.advance(now);
+        day.advance(now);
+        if (minute.exceeds(amount, limits.maxAmountPerMinute, limits.maxCountPerMinute)
+                || day.exceeds(amount, limits.maxAmountPerDay, limits.maxCountPerDay)) {
+            return false;
+        }
+        minute.addToHead(amount);
+        day.addToHead(amount);
+        return true;
+    }
+
+    // Undo a successful tryAcquire whose operation then failed
+    public synchronized void release(long amount, long acquiredAt) {
+        minute.add(acquiredAt, -amount, -1);
+        day.add(acquiredAt, -amount, -1);
+    }
+
+    // Ring of fixed-width time buckets with running totals over the live ones
+    private static final class Window {
+        private final long[] amounts;
+        private final int[] counts;
+        private final long bucketMillis;
+        private long head = Long.MIN_VALUE;   // newest bucket number
+        private int headIndex;                // head's position in the ring
+        private long headEnd = Long.MIN_VALUE;   // first millisecond after the head bucket
+        private long amount;
+        private long count;
+
+        Window(int buckets, long bucketMillis) {
+            this.amounts = new long[buckets];
+            this.counts = new int[buckets];
+            this.bucketMillis = bucketMillis;
+        }
+
+        // Move the window forward to now, dropping buckets that have aged out
+        void advance(long now) {
+            if (now < headEnd) {
+                return;   // still inside the head bucket (a clock step back also lands here)
+            }
+            long bucket = Math.floorDiv(now, bucketMillis);
+            long stale = head == Long.MIN_VALUE ? amounts.length : Math.min(bucket - head, amounts.length);
+            for (long b = bucket - stale + 1; b <= bucket; b++) {
+                int i = (int) Math.floorMod(b, (long) amounts.length);
+                amount -= amounts[i];
+                count -= counts[i];
+                amounts[i] = 0;
+                counts[i] = 0;
+            }
+            head = bucket;
+            headIndex = (int) Math.floorMod(bucket, (long) amounts.length);
+            headEnd = (bucket + 1) * bucketMillis;
+        }
+
+        boolean exceeds(long extra, long maxAmount, long maxCount) {
+            return (maxAmount > 0 && amount + extra > maxAmount) || (maxCount > 0 && count + 1 > maxCount);
+        }
+
+        void addToHead(long delta) {
+            amounts[headIndex] += delta;
+            counts[headIndex]++;
+            amount += delta;
+            count++;
+        }
+
+        // Add to the bucket of time when, if it is still inside the window
+        void add(long when, long delta, int countDelta) {
+            long bucket = Math.floorDiv(when, bucketMillis);
+            if (bucket > head || bucket <= head - amounts.length) {
+                return;
+            }
+            int i = (int) Math.floorMod(bucket, (long) amounts.length);
+            amounts[i] += delta;
+            counts[i] += countDelta;
+            amount += delta;
+            count += countDelta;
+        }
+    }
+}
 
 /**
  * BankAccount class
  * Represents a generic bank account with basic operations.
+ * Single-account operations update the balance with a lock-free CAS; transfers
+ * additionally hold both accounts' stripe locks, taken in stripe order so that
+ * two opposite transfers can never deadlock. Withdrawals and outgoing transfers
+ * are checked against the account's VelocityLimiter, if it has limits. Every
+ * operation is reported to the AuditLog, if one is installed, instead of being
+ * printed.
+ */
+class BankAccount {
+    private static final VarHandle BALANCE;
+    private static final int LOCK_STRIPES = 1024;   // power of two
+    private static final Object[] TRANSFER_LOCKS = new Object[LOCK_STRIPES];
+
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(BankAccount.class, "balance", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            TRANSFER_LOCKS[i] = new Object();
+        }
+    }
+
+    private static volatile AuditLog auditLog;  // null when auditing is off
+
+    protected String accountNumber;   // Unique account number
+    protected String accountHolder;   // Name of account holder
+    protected volatile long balance;  // Current balance in paisa (CAS-updated)
+    private final int lockStripe;     // Index into TRANSFER_LOCKS
+    private volatile VelocityLimiter limiter;   // null when the account has no limits
+
+    // Constructor to initialize account details
+    public BankAccount(String accountNumber, String accountHolder, long balance) {
+        this.accountNumber = accountNumber;
+        this.accountHolder = accountHolder;
+        this.balance = balance;
+        int h = accountNumber.hashCode();
+        this.lockStripe = (h ^ (h >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    // Install (or with null remove) the audit sink for all accounts
+    static void setAuditLog(AuditLog log) {
+        auditLog = log;
+    }
+
+    // Balance in paisa
+    public long getBalance() {
+        return balance;
+    }
+
+    public VelocityLimits getVelocityLimits() {
+        VelocityLimiter l = limiter;
+        return l == null ? VelocityLimits.NONE : l.limits();
+    }
+
+    // Replace the account's limits; the sliding windows start empty again
+    public void setVelocityLimits(VelocityLimits limits) {
+        limiter = limits.isUnlimited() ? null : new VelocityLimiter(limits);
+    }
+
+    private void audit(AuditEvent.Type type, TxResult result, BankAccount target, long amount,
+                       long balanceAfter, long targetBalanceAfter) {
+        AuditLog log = auditLog;
+        if (log != null) {
+            log.publish(type, result, this, target, amount, balanceAfter, targetBalanceAfter);
+        }
+    }
+
+    // Thread-safe deposit
+    public TxResult tryDeposit(long amount) {
+        if (amount <= 0) {
+            audit(AuditEvent.Type.DEPOSIT, TxResult.INVALID_AMOUNT, null, amount, balance, 0);
+            return TxResult.INVALID_AMOUNT;
+        }
+        audit(AuditEvent.Type.DEPOSIT, TxResult.OK, null, amount, credit(amount), 0);
+        return TxResult.OK;
+    }
+
+    // Thread-safe withdrawal
+    public TxResult tryWithdraw(long amount) {
+        if (amount <= 0) {
+            audit(AuditEvent.Type.WITHDRAW, TxResult.INVALID_AMOUNT, null, amount, balance, 0);
+            return TxResult.INVALID_AMOUNT;
+        }
+        VelocityLimiter limiter = this.limiter;
+        long now = limiter == null ? 0 : System.currentTimeMillis();
+        if (limiter != null && !limiter.tryAcquire(amount, now)) {
+            audit(AuditEvent.Type.WITHDRAW, TxResult.LIMIT_EXCEEDED, null, amount, balance, 0);
+            return TxResult.LIMIT_EXCEEDED;
+        }
+        long after = debit(amount);
+        if (after < 0) {
+            if (limiter != null) {
+                limiter.release(amount, now);
+            }
+            audit(AuditEvent.Type.WITHDRAW, TxResult.INSUFFICIENT_FUNDS, null, amount, balance, 0);
+            return TxResult.INSUFFICIENT_FUNDS;
+        }
+        audit(AuditEvent.Type.WITHDRAW, TxResult.OK, null, amount, after, 0);
+        return TxResult.OK;
+    }
+
+    // Thread-safe transfer
+    public TxResult tryTransfer(BankAccount target, long amount) {
+        if (amount <= 0 || target == this) {
+            TxResult result = amount <= 0 ? TxResult.INVALID_AMOUNT : TxResult.SAME_ACCOUNT;
+            audit(AuditEvent.Type.TRANSFER, result, target, amount, balance, 0);
+            return result;
+        }
+        VelocityLimiter limiter = this.limiter;
+        long now = limiter == null ? 0 : System.currentTimeMillis();
+        if (limiter != null && !limiter.tryAcquire(amount, now)) {
+            audit(AuditEvent.Type.TRANSFER, TxResult.LIMIT_EXCEEDED, target, amount, balance, 0);
+            return TxResult.LIMIT_EXCEEDED;
+        }
+        long after;
+        long targetAfter = 0;
+        Object first = TRANSFER_LOCKS[Math.min(lockStripe, target.lockStripe)];
+        Object second = TRANSFER_LOCKS[Math.max(lockStripe, target.lockStripe)];
+        synchronized (first) {
+            synchronized (second) {   // same monitor when both share a stripe (re-entrant)
+                after = debit(amount);
+                if (after >= 0) {
+                    targetAfter = target.credit(amount);
+                }
+            }
+        }
+        if (after < 0 && limiter != null) {
+            limiter.release(amount, now);
+        }
+        TxResult result = after < 0 ? TxResult.INSUFFICIENT_FUNDS : TxResult.OK;
+        audit(AuditEvent.Type.TRANSFER, result, target, amount, after < 0 ? balance : after, targetAfter);
+        return result;
+    }
+
+    // Credit posted interest (no validation; amount is computed by the bank)
+    public void creditInterest(long amount) {
+        audit(AuditEvent.Type.INTEREST, TxResult.OK, null, amount, credit(amount), 0);
+    }
+
+    // Add to the balance with a CAS retry loop; returns the new balance
+    protected final long credit(long amount) {
+        long current;
+        do {
+            current = balance;
+        } while (!BALANCE.compareAndSet(this, current, current + amount));
+        return current + amount;
+    }
+
+    // Subtract from the balance unless it would go negative; returns the new balance or -1
+    protected final long debit(long amount) {
+        long current;
+        do {
+            current = balance;
+            if (amount > current) {
+                return -1;
+            }
+        } while (!BALANCE.compareAndSet(this, current, current - amount));
+        return current - amount;
+    }
+
+    // Display account details
+    public void displayDetails() {
+        System.out.println("Account Number: " + accountNumber);
+        System.out.println("Account Holder: " + accountHolder);
+        System.out.println("Balance: Rs. " + Money.format(balance));
+        VelocityLimits limits = getVelocityLimits();
+        if (!limits.isUnlimited()) {
+            System.out.println("Limits per minute: " + describeLimit(limits.maxAmountPerMinute, limits.maxCountPerMinute));
+            System.out.println("Limits per day: " + describeLimit(limits.maxAmountPerDay, limits.maxCountPerDay));
+        }
+    }
+
+    private static String describeLimit(long maxAmount, long maxCount) {
+        return (maxAmount == 0 ? "any amount" : "Rs. " + Money.format(maxAmount)) + ", "
+                + (maxCount == 0 ? "any number of" : "at most " + maxCount) + " withdrawal(s)/transfer(s)";
+    }
+}
+
+/**
+ * SavingsAccount class
+ * Extends BankAccount and adds interest calculation functionality.
+ */
+class SavingsAccount extends BankAccount {
+    private long interestRate; // Annual interest rate in basis points (1% = 100)
+    int accrualSlot = -1;      // Position in the InterestAccrual columns
+
+    // Constructor
+    public SavingsAccount(String accountNumber, String accountHolder, long balance, long interestRate) {
+        super(accountNumber, accountHolder, balance);
+        this.interestRate = interestRate;
+    }
+
+    public long getInterestRate() {
+        return interestRate;
+    }
+
+    // Interest on the current balance in paisa, rounded half-even
+    public long interestOnBalance() {
+        return Money.mulDivHalfEven(balance, interestRate, 10_000);
+    }
+
+    // Calculate interest for current balance
+    public void calculateInterest() {
+        System.out.println("Interest for current balance at " + Money.format(interestRate) + "%: Rs. "
+                + Money.format(interestOnBalance()));
+    }
+}
+
+/**
+ * AccountRegistry class
+ * Concurrent hash index of all accounts keyed by account number.
+ */
+class AccountRegistry {
+    private final ConcurrentHashMap<String, BankAccount> accounts;
+
+    public AccountRegistry() {
+        this(16);
+    }
+
+    // Pre-size the index for the expected number of accounts
+    public AccountRegistry(int expectedAccounts) {
+        accounts = new ConcurrentHashMap<>(expectedAccounts);
+    }
+
+    // Add the account unless its number is already taken (atomic create-if-absent)
+    public boolean createIfAbsent(BankAccount account) {
+        return accounts.putIfAbsent(account.accountNumber, account) == null;
+    }
+
+    // O(1) lookup by account number, null if not found
+    public BankAccount find(String accountNumber) {
+        return accounts.get(accountNumber);
+    }
+
+    public boolean contains(String accountNumber) {
+        return accounts.containsKey(accountNumber);
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    public Collection<BankAccount> all() {
+        return accounts.values();
+    }
+}
+
+/**
+ * TransactionJournal class
+ * Append-only binary journal of account events, split into segment files named
+ * by their first sequence number. Appends go to an in-memory buffer; a background
+ * flusher writes each batch through a FileChannel and fsyncs it once (group commit).
+ * Record layout: length, seq, type, account, other, amount, rate, CRC32.
+ */
+class TransactionJournal implements Closeable {
+    static final byte CREATE = 1;     // other = holder, amount = opening balance, rate = -1 if not savings
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte TRANSFER = 4;   // other = target account
+    static final byte INTEREST = 5;
+    static final byte CLOSE_DAYS = 6; // amount = last closed epoch day
+    static final byte LIMITS_MINUTE = 7;   // amount = max amount, rate = max count (0 = none); replay only
+    static final byte LIMITS_DAY = 8;      // replay only, LIMITS replaces both
+    static final byte ORDER_CREATE = 9;    // other = target, rate = first due day * 4 + frequency
+    static final byte ORDER_PAY = 10;      // transfer made by a standing order, rate = order id
+    static final byte ORDER_FAIL = 11;     // amount = order id, rate = day of the failed attempt
+    static final byte ORDER_CANCEL = 12;   // amount = order id
+    static final byte LIMITS = 13;         // amount, rate = per-minute caps; dayAmount, dayCount = per-day caps
+
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // One decoded journal record (used during replay)
+    static class Record {
+        long seq;
+        byte type;
+        String account;
+        String other;
+        long amount;
+        long rate;
+        long dayAmount;   // LIMITS only
+        long dayCount;
+    }
+
+    private final Path dir;
+    private final Thread flusher;
+    private FileChannel channel;                          // current segment, guarded by this
+    private ByteBuffer active = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer flushing = ByteBuffer.allocate(1 << 16);
+    private final CRC32 crc = new CRC32();
+    private long nextSeq;
+    private long durableSeq;
+    private long appendsSinceRoll;
+    private boolean flushInProgress;
+    private boolean closed;
+    private IOException failure;
+
+    private TransactionJournal(Path dir, FileChannel channel, long nextSeq) {
+        this.dir = dir;
+        this.channel = channel;
+        this.nextSeq = nextSeq;
+        this.durableSeq = nextSeq - 1;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Replay every record after afterSeq, then open the journal for appending
+    static TransactionJournal open(Path dir, long afterSeq, Consumer<Record> replay) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> segments = listSegments(dir);
+        long lastSeq = afterSeq;
+        Record record = new Record();
+        for (int i = 0; i < segments.size(); i++) {
+            // A segment is entirely covered by the snapshot if the next one starts at or before afterSeq + 1
+            if (i + 1 < segments.size() && firstSeqOf(segments.get(i + 1)) <= afterSeq + 1) {
+                continue;
+            }
+            try (FileChannel in = FileChannel.open(segments.get(i), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer data = ByteBuffer.allocate((int) in.size());
+                while (data.hasRemaining() && in.read(data) >= 0) {
+                }
+                data.flip();
+                while (decode(data, record)) {
+                    if (record.seq > afterSeq) {
+                        replay.accept(record);
+                    }
+                    lastSeq = Math.max(lastSeq, record.seq);
+                }
+                if (data.hasRemaining()) {
+                    in.truncate(data.position());   // torn tail from a crash mid-write
+                }
+            }
+        }
+        Path current = segments.isEmpty() ? segmentPath(dir, lastSeq + 1) : segments.get(segments.size() - 1);
+        FileChannel channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new TransactionJournal(dir, channel, lastSeq + 1);
+    }
+
+    public long appendCreate(BankAccount account, long rate) {
+        return append(CREATE, account.accountNumber, account.accountHolder, account.getBalance(), rate);
+    }
+
+    public long appendDeposit(BankAccount account, long amount) {
+        return append(DEPOSIT, account.accountNumber, "", amount, 0);
+    }
+
+    public long appendWithdraw(BankAccount account, long amount) {
+        return append(WITHDRAW, account.accountNumber, "", amount, 0);
+    }
+
+    public long appendTransfer(BankAccount from, BankAccount to, long amount) {
+        return append(TRANSFER, from.accountNumber, to.accountNumber, amount, 0);
+    }
+
+    public long appendInterest(BankAccount account, long amount) {
+        return append(INTEREST, account.accountNumber, "", amount, 0);
+    }
+
+    public long appendCloseDays(long throughDay) {
+        return append(CLOSE_DAYS, "", "", throughDay, 0);
+    }
+
+    // The returned sequence number becomes the order's id
+    public long appendOrderCreate(BankAccount from, BankAccount to, long amount, StandingOrder.Frequency frequency,
+                                  long firstDueDay) {
+        return append(ORDER_CREATE, from.accountNumber, to.accountNumber, amount,
+                firstDueDay * 4 + frequency.ordinal());
+    }
+
+    public long appendOrderPayment(StandingOrder order) {
+        return append(ORDER_PAY, order.from.accountNumber, order.to.accountNumber, order.amount, order.id);
+    }
+
+    public long appendOrderFailure(StandingOrder order, long day) {
+        return append(ORDER_FAIL, order.from.accountNumber, "", order.id, day);
+    }
+
+    public long appendOrderCancel(StandingOrder order) {
+        return append(ORDER_CANCEL, order.from.accountNumber, "", order.id, 0);
+    }
+
+    // Both windows in one record, so a crash can never leave half an update to replay
+    public long appendLimits(BankAccount account, VelocityLimits limits) {
+        return append(LIMITS, account.accountNumber, "", limits.maxAmountPerMinute, limits.maxCountPerMinute,
+                limits.maxAmountPerDay, limits.maxCountPerDay);
+    }
+
+    private long append(byte type, String account, String other, long amount, long rate) {
+        return append(type, account, other, amount, rate, 0, 0);
+    }
+
+    // Buffer one record and return its sequence number (not yet durable)
+    private synchronized long append(byte type, String account, String other, long amount, long rate,
+                                     long dayAmount, long dayCount) {
+        if (failure != null || closed) {
+            throw new UncheckedIOException(new IOException("Journal is not writable", failure));
+        }
+        byte[] acc = account.getBytes(StandardCharsets.UTF_8);
+        byte[] oth = other.getBytes(StandardCharsets.UTF_8);
+        if (acc.length > MAX_STRING_BYTES || oth.length > MAX_STRING_BYTES) {   // lengths are unsigned shorts
+            throw new IllegalArgumentException("Journal string longer than " + MAX_STRING_BYTES + " UTF-8 bytes");
+        }
+        int bodyLength = 8 + 1 + 2 + acc.length + 2 + oth.length + 8 + 8 + (type == LIMITS ? 16 : 0);
+        ensureCapacity(4 + bodyLength + 4);
+        long seq = nextSeq++;
+        active.putInt(bodyLength);
+        int bodyStart = active.position();
+        active.putLong(seq).put(type)
+                .putShort((short) acc.length).put(acc)
+                .putShort((short) oth.length).put(oth)
+                .putLong(amount).putLong(rate);
+        if (type == LIMITS) {
+            active.putLong(dayAmount).putLong(dayCount);
+        }
+        crc.reset();
+        crc.update(active.array(), bodyStart, bodyLength);
+        active.putInt((int) crc.getValue());
+        appendsSinceRoll++;
+        notifyAll();
+        return seq;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (active.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + bytes));
+            active.flip();
+            bigger.put(active);
+            active = bigger;
+        }
+    }
+
+    private static boolean decode(ByteBuffer data, Record r) {
+        int start = data.position();
+        if (data.remaining() < 4) return false;
+        int bodyLength = data.getInt();
+        if (bodyLength < 29 || data.remaining() < bodyLength + 4) {
+            data.position(start);
+            return false;
+        }
+        // Check the CRC before parsing, so a torn or corrupt body ends the log instead of being read
+        int bodyStart = data.position();
+        CRC32 check = new CRC32();
+        check.update(data.array(), bodyStart, bodyLength);
+        if (data.getInt(bodyStart + bodyLength) != (int) check.getValue()) {
+            data.position(start);
+            return false;
+        }
+        r.seq = data.getLong();
+        r.type = data.get();
+        r.account = readString(data);
+        r.other = readString(data);
+        r.amount = data.getLong();
+        r.rate = data.getLong();
+        if (r.type == LIMITS) {
+            r.dayAmount = data.getLong();
+            r.dayCount = data.getLong();
+        }
+        data.position(bodyStart + bodyLength + 4);
+        return true;
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort() & 0xFFFF];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Block until every record up to seq has been fsynced
+    public synchronized void awaitDurable(long seq) throws IOException {
+        while (durableSeq < seq && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for journal flush");
+            }
+        }
+        if (durableSeq < seq) {
+            throw failure;
+        }
+    }
+
+    // Block until everything appended so far is durable
+    public void sync() throws IOException {
+        long last;
+        synchronized (this) {
+            last = nextSeq - 1;
+        }
+        awaitDurable(last);
+    }
+
+    public synchronized long lastSeq() {
+        return nextSeq - 1;
+    }
+
+    public synchronized long appendsSinceRoll() {
+        return appendsSinceRoll;
+    }
+
+    // Flush, then start a new segment at the next sequence number; caller must stop appends
+    public synchronized void roll() throws IOException {
+        while ((active.position() > 0 || flushInProgress) && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted rolling journal");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        channel.close();
+        channel = FileChannel.open(segmentPath(dir, nextSeq), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        appendsSinceRoll = 0;
+    }
+
+    // Delete segments that only hold records at or before seq
+    public void deleteSegmentsThrough(long seq) throws IOException {
+        List<Path> segments = listSegments(dir);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSeqOf(segments.get(i + 1)) <= seq + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            FileChannel out;
+            long upTo;
+            synchronized (this) {
+                while (active.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (active.position() == 0) {
+                    return;   // closed and drained
+                }
+                ByteBuffer batch = active;
+                active = flushing;
+                flushing = batch;
+                upTo = nextSeq - 1;
+                out = channel;
+                flushInProgress = true;
+            }
+            IOException error = null;
+            try {
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    out.write(flushing);
+                }
+                out.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            flushing.clear();
+            synchronized (this) {
+                flushInProgress = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSeq = upTo;
+                }
+                notifyAll();
+                if (error != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private static List<Path> listSegments(Path dir) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : stream) {
+                segments.add(p);
+            }
+        }
+        segments.sort(Comparator.comparingLong(TransactionJournal::firstSeqOf));
+        return segments;
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Path segmentPath(Path dir, long firstSeq) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+    }
+}
+
+/**
+ * InterestAccrual class
+ * Struct-of-arrays view of every savings account, used for daily-balance
+ * interest. Closing days adds each account's end-of-day balance times the days
+ * elapsed to its balance-days total; posting pays
+ * balanceDays * annual rate / 365 (rounded half-even), so each account is
+ * prorated by the days it actually held each balance. Columns are stored in
+ * fixed-size chunks so slots never move while passes run in parallel.
+ */
+class InterestAccrual {
+    static final long NO_DAY = Long.MIN_VALUE;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK - 1;
+    private static final long RATE_DAY_SCALE = 10_000L * 365;   // basis points x days per year
+
+    // Receives the interest computed for one account during a posting pass
+    interface Poster {
+        void post(SavingsAccount account, long interest);
+    }
+
+    private final Object slotsLock = new Object();
+    private volatile SavingsAccount[][] accounts = new SavingsAccount[0][];
+    private volatile long[][] rates = new long[0][];          // basis points
+    private volatile long[][] balanceDays = new long[0][];    // paisa x days since last posting
+    private volatile int size;
+    private volatile long lastClosedDay = NO_DAY;
+
+    public int size() {
+        return size;
+    }
+
+    public long lastClosedDay() {
+        return lastClosedDay;
+    }
+
+    // Start accruing for a new account from the last closed day
+    public void register(SavingsAccount account) {
+        restore(account, 0);
+    }
+
+    // Register an account with balance-days recovered from a snapshot
+    public void restore(SavingsAccount account, long accumulated) {
+        synchronized (slotsLock) {
+            int slot = size;
+            int chunk = slot >>> CHUNK_BITS;
+            if (chunk == accounts.length) {
+                accounts = Arrays.copyOf(accounts, chunk + 1);
+                accounts[chunk] = new SavingsAccount[CHUNK];
+                rates = grow(rates);
+                balanceDays = grow(balanceDays);
+            }
+            int i = slot & CHUNK_MASK;
+            accounts[chunk][i] = account;
+            rates[chunk][i] = account.getInterestRate();
+            balanceDays[chunk][i] = accumulated;
+            account.accrualSlot = slot;
+            size = slot + 1;
+        }
+    }
+
+    private static long[][] grow(long[][] columns) {
+        long[][] bigger = Arrays.copyOf(columns, columns.length + 1);
+        bigger[columns.length] = new long[CHUNK];
+        return bigger;
+    }
+
+    public void restoreLastClosedDay(long day) {
+        lastClosedDay = day;
+    }
+
+    public long balanceDaysOf(SavingsAccount account) {
+        return balanceDays[account.accrualSlot >>> CHUNK_BITS][account.accrualSlot & CHUNK_MASK];
+    }
+
+    // Accumulate end-of-day balances for every day after the last closed day up to throughDay
+    public void closeDays(long throughDay) {
+        if (lastClosedDay == NO_DAY) {
+            lastClosedDay = throughDay;   // first close only sets the starting point
+            return;
+        }
+        long days = throughDay - lastClosedDay;
+        if (days <= 0) {
+            return;
+        }
+        int n = size;
+        SavingsAccount[][] acc = accounts;
+        long[][] sums = balanceDays;
+        IntStream.range(0, (n + CHUNK - 1) >>> CHUNK_BITS).parallel().forEach(c -> {
+            SavingsAccount[] a = acc[c];
+            long[] b = sums[c];
+            int end = Math.min(CHUNK, n - (c << CHUNK_BITS));
+            for (int i = 0; i < end; i++) {
+                b[i] = Math.addExact(b[i], Math.multiplyExact(a[i].getBalance(), days));
+            }
+        });
+        lastClosedDay = throughDay;
+    }
+
+    // Compute interest for every account with accrued balance-days and hand it to the poster
+    public void post(Poster poster) {
+        int n = size;
+        SavingsAccount[][] acc = accounts;
+        long[][] rate = rates;
+        long[][] sums = balanceDays;
+        IntStream.range(0, (n + CHUNK - 1) >>> CHUNK_BITS).parallel().forEach(c -> {
+            SavingsAccount[] a = acc[c];
+            long[] r = rate[c];
+            long[] b = sums[c];
+            int end = Math.min(CHUNK, n - (c << CHUNK_BITS));
+            for (int i = 0; i < end; i++) {
+                long interest = Money.mulDivHalfEven(b[i], r[i], RATE_DAY_SCALE);
+                if (interest > 0) {
+                    poster.post(a[i], interest);
+                }
+            }
+        });
+    }
+
+    // Interest for the account has been paid; start a new period
+    public void reset(SavingsAccount account) {
+        balanceDays[account.accrualSlot >>> CHUNK_BITS][account.accrualSlot & CHUNK_MASK] = 0;
+    }
+}
+
+/**
+ * StandingOrder class
+ * A recurring transfer between two accounts. Each occurrence gets up to
+ * MAX_ATTEMPTS daily attempts; an occurrence that still fails is skipped, and
+ * after SUSPEND_AFTER skipped occurrences in a row the order is suspended.
+ * The state changes in paid() and failed() are deterministic so that journal
+ * replay reproduces them exactly.
+ */
+final class StandingOrder {
+    enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    static final int MAX_ATTEMPTS = 3;
+    static final int SUSPEND_AFTER = 3;
+
+    final long id;                  // journal sequence of the order's creation
+    final BankAccount from;
+    final BankAccount to;
+    final long amount;              // paisa
+    final Frequency frequency;
+    final int dayOfMonth;           // monthly orders: preferred day, clamped to short months
+    long nextDueDay;                // epoch day of the occurrence being paid
+    long wakeDay;                   // next day to look at the order (nextDueDay or a retry day)
+    int attempts;                   // failed attempts at the current occurrence
+    int missed;                     // occurrences skipped in a row
+    long payments;                  // occurrences paid so far
+    boolean suspended;
+    TxResult lastFailure;           // reason of the latest failed attempt (not persisted)
+    volatile boolean cancelled;
+
+    StandingOrder(long id, BankAccount from, BankAccount to, long amount, Frequency frequency, int dayOfMonth,
+                  long nextDueDay) {
+        this.id = id;
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.dayOfMonth = dayOfMonth;
+        this.nextDueDay = nextDueDay;
+        this.wakeDay = nextDueDay;
+    }
+
+    // A new order whose first payment is due on firstDueDay
+    static StandingOrder starting(long id, BankAccount from, BankAccount to, long amount, Frequency frequency,
+                                  long firstDueDay) {
+        return new StandingOrder(id, from, to, amount, frequency,
+                LocalDate.ofEpochDay(firstDueDay).getDayOfMonth(), firstDueDay);
+    }
+
+    // Detached copy of the persistent state (for snapshots)
+    StandingOrder copy() {
+        StandingOrder c = new StandingOrder(id, from, to, amount, frequency, dayOfMonth, nextDueDay);
+        c.wakeDay = wakeDay;
+        c.attempts = attempts;
+        c.missed = missed;
+        c.payments = payments;
+        c.suspended = suspended;
+        return c;
+    }
+
+    boolean isActive() {
+        return !suspended && !cancelled;
+    }
+
+    // The occurrence was paid: move on to the next one
+    void paid() {
+        payments++;
+        attempts = 0;
+        missed = 0;
+        nextDueDay = dueAfter(nextDueDay);
+        wakeDay = nextDueDay;
+    }
+
+    // An attempt on day today failed: retry tomorrow, or skip the occurrence
+    void failed(long today) {
+        if (++attempts < MAX_ATTEMPTS) {
+            wakeDay = today + 1;
+            return;
+        }
+        attempts = 0;
+        nextDueDay = dueAfter(nextDueDay);
+        wakeDay = nextDueDay;
+        if (++missed >= SUSPEND_AFTER) {
+            suspended = true;
+        }
+    }
+
+    long dueAfter(long day) {
+        switch (frequency) {
+            case DAILY:
+                return day + 1;
+            case WEEKLY:
+                return day + 7;
+            default:
+                LocalDate next = LocalDate.ofEpochDay(day).plusMonths(1);
+                return next.withDayOfMonth(Math.min(dayOfMonth, next.lengthOfMonth())).toEpochDay();
+        }
+    }
+}
+
+/**
+ * StandingOrderBook class
+ * All standing orders by id, plus a calendar queue of the active ones keyed by
+ * the day they next need attention. Taking the orders due on a day costs
+ * O(log days + due), independent of how many orders exist.
+ */
+class StandingOrderBook {
+    private final Map<Long, StandingOrder> byId = new HashMap<>();
+    private final TreeMap<Long, ArrayList<StandingOrder>> byWakeDay = new TreeMap<>();
+
+    public synchronized void add(StandingOrder order) {
+        byId.put(order.id, order);
+        if (order.isActive()) {
+            enqueue(order);
+        }
+    }
+
+    // Recovery: register without queueing; call rebuildQueue once the journal is replayed
+    synchronized void restore(StandingOrder order) {
+        byId.put(order.id, order);
+    }
+
+    synchronized void rebuildQueue() {
+        byWakeDay.clear();
+        for (StandingOrder order : byId.values()) {
+            if (order.isActive()) {
+                enqueue(order);
+            }
+        }
+    }
+
+    // Remove and mark cancelled; an order taken by a running batch is dropped when it is rescheduled
+    public synchronized StandingOrder cancel(long id) {
+        StandingOrder order = byId.remove(id);
+        if (order != null) {
+            order.cancelled = true;
+            ArrayList<StandingOrder> bucket = byWakeDay.get(order.wakeDay);
+            if (bucket != null && bucket.remove(order) && bucket.isEmpty()) {
+                byWakeDay.remove(order.wakeDay);
+            }
+        }
+        return order;
+    }
+
+    public synchronized StandingOrder find(long id) {
+        return byId.get(id);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    // Every order (active or suspended), in id order
+    public synchronized List<StandingOrder> all() {
+        List<StandingOrder> list = new ArrayList<>(byId.values());
+        list.sort(Comparator.comparingLong(o -> o.id));
+        return list;
+    }
+
+    // Copies of every order's state, in no particular order
+    public synchronized List<StandingOrder> copies() {
+        List<StandingOrder> list = new ArrayList<>(byId.size());
+        for (StandingOrder order : byId.values()) {
+            list.add(order.copy());
+        }
+        return list;
+    }
+
+    // Remove and return the active orders whose wake day is on or before today
+    public synchronized List<StandingOrder> takeDue(long today) {
+        List<StandingOrder> due = new ArrayList<>();
+        NavigableMap<Long, ArrayList<StandingOrder>> head = byWakeDay.headMap(today, true);
+        for (ArrayList<StandingOrder> bucket : head.values()) {
+            due.addAll(bucket);
+        }
+        head.clear();
+        return due;
+    }
+
+    // Put orders taken by takeDue back in the queue under their new wake days
+    public synchronized void reschedule(List<StandingOrder> orders) {
+        for (StandingOrder order : orders) {
+            if (order.isActive()) {
+                enqueue(order);
+            }
+        }
+    }
+
+    private void enqueue(StandingOrder order) {
+        byWakeDay.computeIfAbsent(order.wakeDay, d -> new ArrayList<>()).add(order);
+    }
+}
+
+/**
+ * Ledger class
+ * Durable entry point for account operations: applies each operation to the
+ * in-memory accounts and appends it to the TransactionJournal. Every
+ * SNAPSHOT_INTERVAL records a balance snapshot is written and older journal
+ * segments are dropped, so startup only replays the journal tail. Day closes,
+ * interest postings and standing orders go through here as well.
+ */
+class Ledger implements Closeable {
+    static final int SNAPSHOT_INTERVAL = 100_000;   // journal records between snapshots
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final int SNAPSHOT_MAGIC = 0x42534e50;   // "BSNP"
+    private static final int SNAPSHOT_VERSION = 4;   // versions 2 (no limits) and 3 (no orders) are still readable
+
+    // Totals from one interest posting run
+    static final class AccrualSummary {
+        final LongAdder accounts = new LongAdder();
+        final LongAdder interest = new LongAdder();
+        long elapsedNanos;
+    }
+
+    // Totals from one standing order run
+    static final class OrderRunSummary {
+        final LongAdder paid = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder suspended = new LongAdder();
+        int due;
+        long elapsedNanos;
+    }
+
+    private final AccountRegistry accounts;
+    private final InterestAccrual accrual;
+    private final StandingOrderBook orders;
+    private final TransactionJournal journal;   // null for an in-memory ledger
+    private final Path dir;
+    // Operations hold the read side while applying and journaling; a snapshot or
+    // day close holds the write side just long enough to see a consistent cut.
+    // Lock order: accrualLock, then gate, then the accrual's internal slot lock.
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    private final Object accrualLock = new Object();
+    private final Object createLock = new Object();
+    private final Object orderRunLock = new Object();   // one standing order run at a time, taken before gate
+    private long nextLocalOrderId = 1;                  // order ids of an in-memory ledger, guarded by orders
+    private final AtomicBoolean backgroundQueued = new AtomicBoolean();
+    private final AtomicBoolean ordersDue = new AtomicBoolean();   // a day closed since the last order run
+    private final ExecutorService background;
+    private final Clock clock;
+    private volatile long nextDayStartMillis;
+
+    private Ledger(AccountRegistry accounts, InterestAccrual accrual, StandingOrderBook orders,
+                   TransactionJournal journal, Path dir, Clock clock) {
+        this.accounts = accounts;
+        this.accrual = accrual;
+        this.orders = orders;
+        this.journal = journal;
+        this.dir = dir;
+        this.clock = clock;
+        this.background = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ledger-background");
+            t.setDaemon(true);
+            return t;
+        });
+        // Close the days missed while the ledger was shut, before anything new is applied
+        long yesterday = today() - 1;
+        if (accrual.lastClosedDay() < yesterday) {   // NO_DAY sorts first, so a new ledger starts here too
+            closeDays(yesterday);
+        }
+        this.nextDayStartMillis = nextDayStart();
+    }
+
+    // Ledger without persistence (used by benchmarks and as a fallback)
+    static Ledger inMemory() {
+        return new Ledger(new AccountRegistry(), new InterestAccrual(), new StandingOrderBook(), null, null,
+                Clock.systemDefaultZone());
+    }
+
+    static Ledger open(Path dir) throws IOException {
+        return open(dir, Clock.systemDefaultZone());
+    }
+
+    // Load the latest snapshot, replay the journal tail and open for appending; days follow the clock
+    static Ledger open(Path dir, Clock clock) throws IOException {
+        Files.createDirectories(dir);
+        AccountRegistry accounts = new AccountRegistry();
+        InterestAccrual accrual = new InterestAccrual();
+        StandingOrderBook orders = new StandingOrderBook();
+        long snapshotSeq = readSnapshot(dir.resolve(SNAPSHOT_FILE), accounts, accrual, orders);
+        TransactionJournal journal = TransactionJournal.open(dir, snapshotSeq,
+                r -> replay(accounts, accrual, orders, r));
+        orders.rebuildQueue();
+        return new Ledger(accounts, accrual, orders, journal, dir, clock);
+    }
+
+    public AccountRegistry accounts() {
+        return accounts;
+    }
+
+    public StandingOrderBook standingOrders() {
+        return orders;
+    }
+
+    public long lastClosedDay() {
+        return accrual.lastClosedDay();
+    }
+
+    // Paisa x days accrued since the account's last interest posting
+    public long balanceDaysOf(SavingsAccount account) {
+        return accrual.balanceDaysOf(account);
+    }
+
+    // Create the account unless the number is taken; journaled before it becomes visible
+    public boolean create(BankAccount account) {
+        closeDayIfDue();
+        gate.readLock().lock();
+        try {
+            synchronized (createLock) {
+                if (accounts.contains(account.accountNumber)) {
+                    return false;
+                }
+                if (journal != null) {
+                    journal.appendCreate(account, account instanceof SavingsAccount
+                            ? ((SavingsAccount) account).getInterestRate() : -1);
+                }
+                if (account instanceof SavingsAccount) {
+                    accrual.register((SavingsAccount) account);
+                }
+                return accounts.createIfAbsent(account);
+            }
+        } finally {
+            gate.readLock().unlock();
+            afterAppend();
+        }
+    }
+
+    public TxResult deposit(BankAccount account, long amount) {
+        closeDayIfDue();
+        gate.readLock().lock();
+        try {
+            TxResult result = account.tryDeposit(amount);
+            if (result == TxResult.OK && journal != null) {
+                journal.appendDeposit(account, amount);
+            }
+            return result;
+        } finally {
+            gate.readLock().unlock();
+            afterAppend();
+        }
+    }
+
+    public TxResult withdraw(BankAccount account, long amount) {
+        closeDayIfDue();
+        gate.readLock().lock();
+        try {
+            TxResult result = account.tryWithdraw(amount);
+            if (result == TxResult.OK && journal != null) {
+                journal.appendWithdraw(account, amount);
+            }
+            return result;
+        } finally {
+            gate.readLock().unlock();
+            afterAppend();
+        }
+    }
+
+    public TxResult transfer(BankAccount from, BankAccount to, long amount) {
+        closeDayIfDue();
+        gate.readLock().lock();
+        try {
+            TxResult result = from.tryTransfer(to, amount);
+            if (result == TxResult.OK && journal != null) {
+                journal.appendTransfer(from, to, amount);
+            }
+            return result;
+        } finally {
+            gate.readLock().unlock();
+            afterAppend();
+        }
+    }
+
+    // Schedule a recurring transfer; the first payment is due on firstDueDay (epoch day)
+    public StandingOrder createStandingOrder(BankAccount from, BankAccount to, long amount,
+                                             StandingOrder.Frequency frequency, long firstDueDay) {
+        if (amount <= 0 || from == to) {
+            throw new IllegalArgumentException(amount <= 0 ? "Amount must be positive" : "Same account");
+        }
+        closeDayIfDue();
+        gate.readLock().lock();
+        try {
+            synchronized (orders) {   // ids come from the journal, so create in journal order
+                long id = journal != null
+                        ? journal.appendOrderCreate(from, to, amount, frequency, firstDueDay)
+                        : nextLocalOrderId++;
+                StandingOrder order = StandingOrder.starting(id, from, to, amount, frequency, firstDueDay);
+                orders.add(order);
+                return order;
+            }
+        } finally {
+            gate.readLock().unlock();
+            afterAppend();
+        }
+    }
+
+    public boolean cancelStandingOrder(long id) {
+        closeDayIfDue();
+        gate.readLock().lock();
+        try {
+            synchronized (orders) {
+                StandingOrder order = orders.find(id);
+                if (order == null) {
+                    return false;
+                }
+                if (journal != null) {
+                    journal.appendOrderCancel(order);
+                }
+                orders.cancel(id);
+                return true;
+            }
+        } finally {
+            gate.readLock().unlock();
+            afterAppend();
+        }
+    }
+
+    // Pay every standing order occurrence due on or before today, catching up on
+    // missed periods; orders run in parallel, each one's occurrences in order
+    public OrderRunSummary runStandingOrders(long today) {
+        closeDayIfDue();
+        OrderRunSummary summary = new OrderRunSummary();
+        long start = System.nanoTime();
+        synchronized (orderRunLock) {
+            List<StandingOrder> due = orders.takeDue(today);
+            summary.due = due.size();
+            due.parallelStream().forEach(order -> {
+                long paidBefore = order.payments;
+                // Ends once the order waits for a later day (a retry or the next period) or stops
+                while (order.isActive() && order.wakeDay <= today) {
+                    if (!payStandingOrder(order, today)) {
+                        if (order.cancelled) {
+                            break;
+                        }
+                        summary.failed.increment();
+                    }
+                }
+                if (order.suspended) {
+                    summary.suspended.increment();
+                }
+                summary.paid.add(order.payments - paidBefore);
+            });
+            orders.reschedule(due);
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        afterAppend();
+        return summary;
+    }
+
+    // One attempt at the order's current occurrence; false if it failed or was cancelled
+    private boolean payStandingOrder(StandingOrder order, long today) {
+        gate.readLock().lock();
+        try {
+            if (order.cancelled) {
+                return false;
+            }
+            TxResult result = order.from.tryTransfer(order.to, order.amount);
+            if (result == TxResult.OK) {
+                if (journal != null) {
+                    journal.appendOrderPayment(order);
+                }
+                order.paid();
+                return true;
+            }
+            if (journal != null) {
+                journal.appendOrderFailure(order, today);
+            }
+            order.lastFailure = result;
+            order.failed(today);
+            return false;
+        } finally {
+            gate.readLock().unlock();
+        }
+    }
+
+    // Set the account's withdrawal and transfer limits
+    public void setVelocityLimits(BankAccount account, VelocityLimits limits) {
+        closeDayIfDue();
+        gate.readLock().lock();
+        try {
+            synchronized (account) {   // keeps journal order and applied order the same per account
+                if (journal != null) {
+                    journal.appendLimits(account, limits);
+                }
+                account.setVelocityLimits(limits);
+            }
+        } finally {
+            gate.readLock().unlock();
+            afterAppend();
+        }
+    }
+
+    // Record end-of-day balances for all savings accounts up to throughDay
+    public void closeDays(long throughDay) {
+        synchronized (accrualLock) {
+            gate.writeLock().lock();
+            try {
+                if (accrual.lastClosedDay() == InterestAccrual.NO_DAY || throughDay > accrual.lastClosedDay()) {
+                    accrual.closeDays(throughDay);
+                    if (journal != null) {
+                        journal.appendCloseDays(throughDay);
+                    }
+                }
+            } finally {
+                gate.writeLock().unlock();
+            }
+        }
+    }
+
+    // End-of-period run: close days through yesterday, then credit accrued interest to every savings account
+    public AccrualSummary postAccruedInterest() {
+        AccrualSummary summary = new AccrualSummary();
+        long start = System.nanoTime();
+        synchronized (accrualLock) {
+            closeDays(today() - 1);
+            gate.readLock().lock();   // held for the whole pass; workers below do not touch the gate
+            try {
+                accrual.post((account, interest) -> {
+                    account.creditInterest(interest);
+                    if (journal != null) {
+                        journal.appendInterest(account, interest);
+                    }
+                    accrual.reset(account);
+                    summary.accounts.increment();
+                    summary.interest.add(interest);
+                });
+            } finally {
+                gate.readLock().unlock();
+            }
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        afterAppend();
+        return summary;
+    }
+
+    // Wait until every operation applied so far is on disk
+    public void commit() throws IOException {
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+
+    // Close the finished day before applying the first operation at or after midnight, so
+    // that operation is not counted in the earlier day's end-of-day balance
+    private void closeDayIfDue() {
+        if (clock.millis() < nextDayStartMillis) {
+            return;
+        }
+        synchronized (accrualLock) {
+            if (clock.millis() >= nextDayStartMillis) {
+                closeDays(today() - 1);
+                nextDayStartMillis = nextDayStart();
+                ordersDue.set(true);
+            }
+        }
+    }
+
+    // Queue a snapshot when enough journal has built up, and the standing order run after a day close
+    private void afterAppend() {
+        boolean snapshotDue = journal != null && journal.appendsSinceRoll() >= SNAPSHOT_INTERVAL;
+        if ((snapshotDue || ordersDue.get()) && backgroundQueued.compareAndSet(false, true)) {
+            background.execute(() -> {
+                try {
+                    if (ordersDue.compareAndSet(true, false)) {
+                        runStandingOrders(today());
+                    }
+                    if (journal != null && journal.appendsSinceRoll() >= SNAPSHOT_INTERVAL) {
+                        snapshot();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Background ledger task failed: " + e.getMessage());
+                } finally {
+                    backgroundQueued.set(false);
+                }
+            });
+        }
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    private long nextDayStart() {
+        return LocalDate.now(clock).plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    // Write a consistent balance snapshot and drop the journal segments it covers
+    public void snapshot() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        BankAccount[] copy;
+        long[] balances;
+        long[] accrued;
+        long closedDay;
+        long seq;
+        List<StandingOrder> orderCopies;
+        gate.writeLock().lock();
+        try {
+            copy = accounts.all().toArray(new BankAccount[0]);
+            balances = new long[copy.length];
+            accrued = new long[copy.length];
+            for (int i = 0; i < copy.length; i++) {
+                balances[i] = copy[i].getBalance();
+                if (copy[i] instanceof SavingsAccount) {
+                    accrued[i] = accrual.balanceDaysOf((SavingsAccount) copy[i]);
+                }
+            }
+            closedDay = accrual.lastClosedDay();
+            orderCopies = orders.copies();
+            seq = journal.lastSeq();
+            journal.roll();
+        } finally {
+            gate.writeLock().unlock();
+        }
+
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(tmp), crc), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(seq);
+            out.writeLong(closedDay);
+            out.writeInt(copy.length);
+            for (int i = 0; i < copy.length; i++) {
+                boolean savings = copy[i] instanceof SavingsAccount;
+                out.writeUTF(copy[i].accountNumber);
+                out.writeUTF(copy[i].accountHolder);
+                out.writeLong(savings ? ((SavingsAccount) copy[i]).getInterestRate() : -1);
+                out.writeLong(balances[i]);
+                if (savings) {
+                    out.writeLong(accrued[i]);
+                }
+                VelocityLimits limits = copy[i].getVelocityLimits();
+                out.writeBoolean(!limits.isUnlimited());
+                if (!limits.isUnlimited()) {
+                    out.writeLong(limits.maxAmountPerMinute);
+                    out.writeLong(limits.maxCountPerMinute);
+                    out.writeLong(limits.maxAmountPerDay);
+                    out.writeLong(limits.maxCountPerDay);
+                }
+            }
+            out.writeInt(orderCopies.size());
+            for (StandingOrder o : orderCopies) {
+                out.writeLong(o.id);
+                out.writeUTF(o.from.accountNumber);
+                out.writeUTF(o.to.accountNumber);
+                out.writeLong(o.amount);
+                out.writeByte(o.frequency.ordinal());
+                out.writeByte(o.dayOfMonth);
+                out.writeLong(o.nextDueDay);
+                out.writeLong(o.wakeDay);
+                out.writeByte(o.attempts);
+                out.writeByte(o.missed);
+                out.writeLong(o.payments);
+                out.writeBoolean(o.suspended);
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        journal.deleteSegmentsThrough(seq);
+    }
+
+    // Returns the journal sequence the snapshot covers, 0 if there is none
+    private static long readSnapshot(Path file, AccountRegistry accounts, InterestAccrual accrual,
+                                     StandingOrderBook orders) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic != SNAPSHOT_MAGIC || version < 2 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Not a version 2-" + SNAPSHOT_VERSION + " balance snapshot: " + file);
+            }
+            long seq = in.readLong();
+            long closedDay = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String number = in.readUTF();
+                String holder = in.readUTF();
+                long rate = in.readLong();
+                long balance = in.readLong();
+                BankAccount account;
+                if (rate < 0) {
+                    account = new BankAccount(number, holder, balance);
+                } else {
+                    account = new SavingsAccount(number, holder, balance, rate);
+                    accrual.restore((SavingsAccount) account, in.readLong());
+                }
+                if (version >= 3 && in.readBoolean()) {
+                    account.setVelocityLimits(new VelocityLimits(in.readLong(), in.readLong(),
+                            in.readLong(), in.readLong()));
+                }
+                accounts.createIfAbsent(account);
+            }
+            int orderCount = version >= 4 ? in.readInt() : 0;
+            for (int i = 0; i < orderCount; i++) {
+                long id = in.readLong();
+                BankAccount from = accounts.find(in.readUTF());
+                BankAccount to = accounts.find(in.readUTF());
+                if (from == null || to == null) {
+                    throw new IOException("Standing order " + id + " refers to an unknown account: " + file);
+                }
+                StandingOrder order = new StandingOrder(id, from, to, in.readLong(),
+                        StandingOrder.Frequency.values()[in.readByte()], in.readByte(), in.readLong());
+                order.wakeDay = in.readLong();
+                order.attempts = in.readByte();
+                order.missed = in.readByte();
+                order.payments = in.readLong();
+                order.suspended = in.readBoolean();
+                orders.restore(order);
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Corrupt balance snapshot: " + file);
+            }
+            accrual.restoreLastClosedDay(closedDay);
+            return seq;
+        }
+    }
+
+    // Re-apply one journaled operation; checks already passed when it was recorded
+    private static void replay(AccountRegistry accounts, InterestAccrual accrual, StandingOrderBook orders,
+                               TransactionJournal.Record r) {
+        if (r.type == TransactionJournal.CREATE) {
+            if (r.rate < 0) {
+                accounts.createIfAbsent(new BankAccount(r.account, r.other, r.amount));
+            } else {
+                SavingsAccount account = new SavingsAccount(r.account, r.other, r.amount, r.rate);
+                accrual.register(account);
+                accounts.createIfAbsent(account);
+            }
+            return;
+        }
+        if (r.type == TransactionJournal.CLOSE_DAYS) {
+            accrual.closeDays(r.amount);
+            return;
+        }
+        BankAccount account = accounts.find(r.account);
+        if (account == null) {
+            throw new IllegalStateException("Journal record " + r.seq + " refers to unknown account " + r.account);
+        }
+        switch (r.type) {
+            case TransactionJournal.DEPOSIT:
+                account.credit(r.amount);
+                break;
+            case TransactionJournal.INTEREST:
+                account.credit(r.amount);
+                accrual.reset((SavingsAccount) account);
+                break;
+            case TransactionJournal.WITHDRAW:
+                account.credit(-r.amount);
+                break;
+            case TransactionJournal.TRANSFER:
+                account.credit(-r.amount);
+                accounts.find(r.other).credit(r.amount);
+                break;
+            case TransactionJournal.ORDER_CREATE:
+                orders.restore(StandingOrder.starting(r.seq, account, accounts.find(r.other), r.amount,
+                        StandingOrder.Frequency.values()[(int) (r.rate & 3)], r.rate >> 2));
+                break;
+            case TransactionJournal.ORDER_PAY: {
+                account.credit(-r.amount);
+                accounts.find(r.other).credit(r.amount);
+                StandingOrder order = orders.find(r.rate);
+                if (order != null) {   // null if a cancel raced ahead of the payment
+                    order.paid();
+                }
+                break;
+            }
+            case TransactionJournal.ORDER_FAIL: {
+                StandingOrder order = orders.find(r.amount);
+                if (order != null) {
+                    order.failed(r.rate);
+                }
+                break;
+            }
+            case TransactionJournal.ORDER_CANCEL:
+                orders.cancel(r.amount);
+                break;
+            case TransactionJournal.LIMITS_MINUTE:
+                account.setVelocityLimits(account.getVelocityLimits().withMinute(r.amount, r.rate));
+                break;
+            case TransactionJournal.LIMITS_DAY:
+                account.setVelocityLimits(account.getVelocityLimits().withDay(r.amount, r.rate));
+                break;
+            case TransactionJournal.LIMITS:
+                account.setVelocityLimits(new VelocityLimits(r.amount, r.rate, r.dayAmount, r.dayCount));
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type " + r.type);
+        }
+    }
+
+    // Final snapshot on a clean shutdown, then close the journal
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (journal != null) {
+            snapshot();
+            journal.close();
+        }
+    }
+}
+
+/**
+ * BatchProcessor class
+ * Streams a transaction file through the Ledger with the work partitioned by
+ * account, so independent accounts are processed in parallel. Each partition
+ * worker runs its operations in file order; a transfer between two partitions
+ * is queued on both and runs once both workers reach it, so every account sees
+ * its operations in exactly the order of the file.
+ * Input lines:  DEPOSIT,acc,amount | WITHDRAW,acc,amount | TRANSFER,from,to,amount
+ * Output lines: lineNumber,result
  */
-class BankAccount {
-    protected String accountNumber;   // Unique account number
-    protected String accountHolder;   // Name of account holder
-    protected double balance;         // Current balance
+class BatchProcessor {
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final Task STOP = new Task(0, null, null, null, 0, 0);
 
-    // Constructor to initialize account details
-    public BankAccount(String accountNumber, String accountHolder, double balance) {
-        this.accountNumber = accountNumber;
-        this.accountHolder = accountHolder;
-        this.balance = balance;
+    // One input line and, once run, its result
+    private static final class Task {
+        final long lineNumber;
+        final String op;
+        final String account;
+        final String target;
+        final long amount;
+        final int parties;                     // partitions that must reach this task
+        final AtomicInteger arrived = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile String result;
+
+        Task(long lineNumber, String op, String account, String target, long amount, int parties) {
+            this.lineNumber = lineNumber;
+            this.op = op;
+            this.account = account;
+            this.target = target;
+            this.amount = amount;
+            this.parties = parties;
+        }
+
+        void complete(String result) {
+            this.result = result;
+            done.countDown();
+        }
     }
 
-    // Deposit money into account
-    public void deposit(double amount) {
-        if (amount <= 0) {
-            System.out.println("Deposit amount must be positive.");
-            return;
+    // Totals reported after a run
+    static final class Summary {
+        long lines;
+        long succeeded;
+        long failed;
+        long elapsedNanos;
+
+        double perSecond() {
+            return lines / Math.max(elapsedNanos / 1e9, 1e-9);
         }
-        balance += amount;
-        System.out.println("Deposit successful. New balance: Rs. " + balance);
     }
 
-    // Withdraw money from account
-    public void withdraw(double amount) {
-        if (amount <= 0) {
-            System.out.println("Withdrawal amount must be positive.");
-            return;
+    private final Ledger ledger;
+    private final int partitions;
+
+    public BatchProcessor(Ledger ledger, int partitions) {
+        this.ledger = ledger;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    public Summary process(Path input, Path output) throws IOException, InterruptedException {
+        Summary summary = new Summary();
+        List<BlockingQueue<Task>> queues = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            BlockingQueue<Task> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            Thread worker = new Thread(() -> runPartition(queue), "batch-partition-" + p);
+            queues.add(queue);
+            workers.add(worker);
+            worker.start();
         }
-        if (amount > balance) {
-            System.out.println("Insufficient balance.");
-            return;
+        BlockingQueue<Task> inOrder = new ArrayBlockingQueue<>(QUEUE_CAPACITY * partitions);
+        IOException[] writeError = new IOException[1];
+        Thread writer = new Thread(() -> {
+            try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                for (Task t = inOrder.take(); t != STOP; t = inOrder.take()) {
+                    t.done.await();
+                    out.write(Long.toString(t.lineNumber));
+                    out.write(',');
+                    out.write(t.result);
+                    out.newLine();
+                    if (t.result.equals("OK")) summary.succeeded++;
+                    else summary.failed++;
+                }
+                ledger.commit();   // results are only final once the journal is on disk
+            } catch (IOException e) {
+                writeError[0] = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "batch-writer");
+        writer.start();
+
+        long start = System.nanoTime();
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Task task = parse(lineNumber, line);
+                inOrder.put(task);
+                if (task.parties == 0) {
+                    continue;   // rejected while parsing
+                }
+                int first = partitionOf(task.account);
+                queues.get(first).put(task);
+                if (task.parties == 2) {
+                    queues.get(partitionOf(task.target)).put(task);
+                }
+            }
+        } finally {
+            for (BlockingQueue<Task> queue : queues) {
+                queue.put(STOP);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            inOrder.put(STOP);
+            writer.join();
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        summary.lines = summary.succeeded + summary.failed;
+        if (writeError[0] != null) {
+            throw writeError[0];
         }
-        balance -= amount;
-        System.out.println("Withdrawal successful. New balance: Rs. " + balance);
+        return summary;
     }
 
-    // Transfer money to another account
-    public void transfer(BankAccount target, double amount) {
-        if (amount <= 0) {
-            System.out.println("Transfer amount must be positive.");
-            return;
+    private Task parse(long lineNumber, String line) {
+        String[] f = line.split(",");
+        for (int i = 0; i < f.length; i++) {
+            f[i] = f[i].trim();
         }
-        if (amount > balance) {
-            System.out.println("Insufficient balance for transfer.");
-            return;
+        String op = f[0].toUpperCase();
+        try {
+            if ((op.equals("DEPOSIT") || op.equals("WITHDRAW")) && f.length == 3) {
+                return new Task(lineNumber, op, f[1], null, Money.parse(f[2]), 1);
+            }
+            if (op.equals("TRANSFER") && f.length == 4) {
+                int parties = partitionOf(f[1]) == partitionOf(f[2]) ? 1 : 2;
+                return new Task(lineNumber, op, f[1], f[2], Money.parse(f[3]), parties);
+            }
+        } catch (NumberFormatException e) {
+            return rejected(lineNumber, "ERROR: " + e.getMessage());
         }
-        balance -= amount;
-        target.balance += amount;
-        System.out.println("Transfer successful. New balance: Rs. " + balance);
+        return rejected(lineNumber, "ERROR: unrecognised line");
     }
 
-    // Display account details
-    public void displayDetails() {
-        System.out.println("Account Number: " + accountNumber);
-        System.out.println("Account Holder: " + accountHolder);
-        System.out.println("Balance: Rs. " + balance);
+    private static Task rejected(long lineNumber, String reason) {
+        Task task = new Task(lineNumber, null, null, null, 0, 0);
+        task.complete(reason);
+        return task;
     }
-}
 
-/**
- * SavingsAccount class
- * Extends BankAccount and adds interest calculation functionality.
- */
-class SavingsAccount extends BankAccount {
-    private double interestRate; // Annual interest rate in percentage
+    private int partitionOf(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return ((h ^ (h >>> 16)) & 0x7fffffff) % partitions;
+    }
 
-    // Constructor
-    public SavingsAccount(String accountNumber, String accountHolder, double balance, double interestRate) {
-        super(accountNumber, accountHolder, balance);
-        this.interestRate = interestRate;
+    private void runPartition(BlockingQueue<Task> queue) {
+        try {
+            for (Task task = queue.take(); task != STOP; task = queue.take()) {
+                if (task.parties == 2 && task.arrived.incrementAndGet() == 1) {
+                    task.done.await();   // the other partition runs it
+                } else {
+                    task.complete(execute(task));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    // Calculate interest for current balance
-    public void calculateInterest() {
-        double interest = balance * (interestRate / 100);
-        System.out.println("Interest for current balance at " + interestRate + "%: Rs. " + interest);
+    private String execute(Task task) {
+        try {
+            BankAccount account = ledger.accounts().find(task.account);
+            if (account == null) {
+                return "ERROR: account " + task.account + " not found";
+            }
+            TxResult result;
+            if (task.op.equals("DEPOSIT")) {
+                result = ledger.deposit(account, task.amount);
+            } else if (task.op.equals("WITHDRAW")) {
+                result = ledger.withdraw(account, task.amount);
+            } else {
+                BankAccount target = ledger.accounts().find(task.target);
+                if (target == null) {
+                    return "ERROR: account " + task.target + " not found";
+                }
+                result = ledger.transfer(account, target, task.amount);
+            }
+            return result.name();
+        } catch (RuntimeException e) {
+            return "ERROR: " + e.getMessage();
+        }
     }
 }
 
@@ -91,10 +2709,41 @@ class SavingsAccount extends BankAccount {
  * Handles user interaction and manages account operations.
  */
 public class BankingSystem {
-    private static ArrayList<BankAccount> accounts = new ArrayList<>(); // Stores all accounts
+    private static final String DATA_DIR = "bankdata";                // Journal and snapshots
+    private static final DateTimeFormatter STATEMENT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static Ledger ledger;                                       // Stores all accounts
+    private static AuditLog audit;                                      // Records every transaction
+    private static HistoryStore history;                                // Per-account statements, may be null
     private static Scanner scanner = new Scanner(System.in);            // For user input
 
     public static void main(String[] args) {
+        audit = new AuditLog(1 << 16);
+        try {
+            audit.subscribe(new RotatingAuditFile(Paths.get(DATA_DIR), 64L << 20, 10));
+        } catch (IOException e) {
+            System.out.println("Could not open audit log (" + e.getMessage() + ").");
+        }
+        try {
+            history = HistoryStore.open(Paths.get(DATA_DIR, "history"));
+            audit.subscribe(history);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not open transaction history (" + e.getMessage() + ").");
+        }
+        if (Arrays.asList(args).contains("--audit-console")) {
+            audit.subscribe(new ConsoleAuditSubscriber());
+        }
+        BankAccount.setAuditLog(audit);
+
+        try {
+            ledger = Ledger.open(Paths.get(DATA_DIR));
+            System.out.println("Loaded " + ledger.accounts().size() + " account(s) from " + DATA_DIR + ".");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not open transaction journal (" + e.getMessage()
+                    + "). Changes will not be saved.");
+            ledger = Ledger.inMemory();
+        }
+        runStandingOrders();   // catch up on payments that fell due while the system was down
+
         int choice;
         do {
             // Display main menu
@@ -105,7 +2754,13 @@ public class BankingSystem {
             System.out.println("4. Transfer");
             System.out.println("5. Display Account Details");
             System.out.println("6. Calculate Interest (Savings Account)");
-            System.out.println("7. Exit");
+            System.out.println("7. Process Transaction Batch File");
+            System.out.println("8. Post Interest to All Savings Accounts");
+            System.out.println("9. Account Statement");
+            System.out.println("10. Set Withdrawal Limits");
+            System.out.println("11. Create Standing Order");
+            System.out.println("12. View/Cancel Standing Orders");
+            System.out.println("13. Exit");
             System.out.print("Enter your choice: ");
 
             // Validate menu input
@@ -137,44 +2792,81 @@ public class BankingSystem {
                     calculateInterest();
                     break;
                 case 7:
+                    processBatchFile();
+                    break;
+                case 8:
+                    postInterest();
+                    break;
+                case 9:
+                    accountStatement();
+                    break;
+                case 10:
+                    setLimits();
+                    break;
+                case 11:
+                    createStandingOrder();
+                    break;
+                case 12:
+                    manageStandingOrders();
+                    break;
+                case 13:
                     System.out.println("Exiting Banking System. Goodbye!");
                     break;
                 default:
-                    System.out.println("Invalid choice! Please select between 1-7.");
+                    System.out.println("Invalid choice! Please select between 1-13.");
             }
-        } while (choice != 7); // Loop until user chooses to exit
+        } while (choice != 13); // Loop until user chooses to exit
+
+        try {
+            ledger.close();
+            audit.close();
+        } catch (IOException e) {
+            System.out.println("Error while saving: " + e.getMessage());
+        }
     }
 
     // Create a new account
     private static void createAccount() {
         System.out.print("Enter Account Number: ");
         String accNum = scanner.nextLine().trim();
+        if (accNum.isEmpty() || ledger.accounts().contains(accNum)) {
+            System.out.println(accNum.isEmpty() ? "Account number cannot be empty." : "Account number already exists.");
+            return;
+        }
 
         System.out.print("Enter Account Holder Name: ");
         String accHolder = scanner.nextLine().trim();
 
-        double initialBalance = getValidAmount("Enter Initial Balance: Rs. ");
+        long initialBalance = getValidAmount("Enter Initial Balance: Rs. ");
 
         // Ask if it's a savings account
         System.out.print("Is this a savings account? (yes/no): ");
         String type = scanner.nextLine().trim().toLowerCase();
 
+        BankAccount account;
         if (type.equals("yes")) {
-            double rate = getValidAmount("Enter Interest Rate (%): ");
-            accounts.add(new SavingsAccount(accNum, accHolder, initialBalance, rate));
+            long rate = getValidAmount("Enter Interest Rate (%): ");   // hundredths of a percent
+            account = new SavingsAccount(accNum, accHolder, initialBalance, rate);
         } else {
-            accounts.add(new BankAccount(accNum, accHolder, initialBalance));
+            account = new BankAccount(accNum, accHolder, initialBalance);
         }
 
-        System.out.println("Account created successfully!");
+        // Re-checked atomically in case the number was taken meanwhile
+        if (!ledger.create(account)) {
+            System.out.println("Account number already exists.");
+            return;
+        }
+        if (commit()) {
+            System.out.println("Account created successfully!");
+        }
     }
 
     // Deposit money into an existing account
     private static void depositMoney() {
         BankAccount account = findAccount();
         if (account != null) {
-            double amount = getValidAmount("Enter deposit amount: Rs. ");
-            account.deposit(amount);
+            long amount = getValidAmount("Enter deposit amount: Rs. ");
+            printResult("Deposit", ledger.deposit(account, amount), account);
         }
     }
 
@@ -182,8 +2874,8 @@ public class BankingSystem {
     private static void withdrawMoney() {
         BankAccount account = findAccount();
         if (account != null) {
-            double amount = getValidAmount("Enter withdrawal amount: Rs. ");
-            account.withdraw(amount);
+            long amount = getValidAmount("Enter withdrawal amount: Rs. ");
+            printResult("Withdrawal", ledger.withdraw(account, amount), account);
         }
     }
 
@@ -195,8 +2887,8 @@ public class BankingSystem {
             System.out.println("Receiver Account:");
             BankAccount receiver = findAccount();
             if (receiver != null && sender != receiver) {
-                double amount = getValidAmount("Enter transfer amount: Rs. ");
-                sender.transfer(receiver, amount);
+                long amount = getValidAmount("Enter transfer amount: Rs. ");
+                printResult("Transfer", ledger.transfer(sender, receiver, amount), sender);
             } else if (sender == receiver) {
                 System.out.println("Cannot transfer to the same account.");
             }
@@ -221,35 +2913,726 @@ public class BankingSystem {
         }
     }
 
+    // Credit accrued daily-balance interest to every savings account
+    private static void postInterest() {
+        Ledger.AccrualSummary summary = ledger.postAccruedInterest();
+        if (commit()) {
+            System.out.printf("Posted interest to %d account(s), total Rs. %s in %.2f s.%n",
+                    summary.accounts.sum(), Money.format(summary.interest.sum()), summary.elapsedNanos / 1e9);
+        }
+    }
+
+    // Set how much money may leave an account per rolling minute and day
+    private static void setLimits() {
+        BankAccount account = findAccount();
+        if (account == null) {
+            return;
+        }
+        System.out.println("Limits apply to withdrawals and outgoing transfers. Enter 0 for no limit.");
+        VelocityLimits limits = new VelocityLimits(
+                getValidAmount("Max amount per minute: Rs. "), getValidCount("Max transactions per minute: "),
+                getValidAmount("Max amount per day: Rs. "), getValidCount("Max transactions per day: "));
+        ledger.setVelocityLimits(account, limits);
+        if (commit()) {
+            System.out.println(limits.isUnlimited() ? "Limits removed." : "Limits updated.");
+        }
+    }
+
+    // Set up a recurring transfer
+    private static void createStandingOrder() {
+        System.out.println("Sender Account:");
+        BankAccount sender = findAccount();
+        if (sender == null) {
+            return;
+        }
+        System.out.println("Receiver Account:");
+        BankAccount receiver = findAccount();
+        if (receiver == null) {
+            return;
+        }
+        if (sender == receiver) {
+            System.out.println("Cannot transfer to the same account.");
+            return;
+        }
+        long amount = getValidAmount("Enter amount per payment: Rs. ");
+        if (amount == 0) {
+            System.out.println("Amount must be positive.");
+            return;
+        }
+        StandingOrder.Frequency frequency = null;
+        while (frequency == null) {
+            System.out.print("Frequency (daily/weekly/monthly): ");
+            try {
+                frequency = StandingOrder.Frequency.valueOf(scanner.nextLine().trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Please enter daily, weekly or monthly.");
+            }
+        }
+        LocalDate first = getValidDate("First payment date (yyyy-mm-dd): ");
+        StandingOrder order = ledger.createStandingOrder(sender, receiver, amount, frequency, first.toEpochDay());
+        if (commit()) {
+            System.out.println("Standing order #" + order.id + " created.");
+            runStandingOrders();   // pays it right away if the first date is today or earlier
+        }
+    }
+
+    // List an account's standing orders and optionally cancel one
+    private static void manageStandingOrders() {
+        BankAccount account = findAccount();
+        if (account == null) {
+            return;
+        }
+        int shown = 0;
+        for (StandingOrder o : ledger.standingOrders().all()) {
+            if (o.from != account && o.to != account) {
+                continue;
+            }
+            String status = o.suspended ? "SUSPENDED" : "next " + LocalDate.ofEpochDay(o.nextDueDay)
+                    + (o.attempts > 0 ? ", retrying (" + o.attempts + " failed attempt(s))" : "");
+            System.out.printf("#%d  %s -> %s  Rs. %s %s, %d paid, %s%n", o.id, o.from.accountNumber,
+                    o.to.accountNumber, Money.format(o.amount), o.frequency.name().toLowerCase(), o.payments, status);
+            shown++;
+        }
+        if (shown == 0) {
+            System.out.println("No standing orders for this account.");
+            return;
+        }
+        long id = getValidCount("Enter order number to cancel (0 to keep all): ");
+        if (id == 0) {
+            return;
+        }
+        StandingOrder order = ledger.standingOrders().find(id);
+        if (order == null || (order.from != account && order.to != account)) {
+            System.out.println("No such standing order for this account.");
+        } else if (ledger.cancelStandingOrder(id) && commit()) {
+            System.out.println("Standing order #" + id + " cancelled.");
+        }
+    }
+
+    // Pay standing orders due today or earlier and report what happened
+    private static void runStandingOrders() {
+        Ledger.OrderRunSummary summary = ledger.runStandingOrders(LocalDate.now().toEpochDay());
+        if (summary.due > 0 && commit()) {
+            System.out.printf("Standing orders: %d payment(s) made, %d failed attempt(s), %d order(s) suspended.%n",
+                    summary.paid.sum(), summary.failed.sum(), summary.suspended.sum());
+        }
+    }
+
+    // Print an account's transactions between two dates, inclusive
+    private static void accountStatement() {
+        BankAccount account = findAccount();
+        if (account == null) {
+            return;
+        }
+        if (history == null) {
+            System.out.println("Transaction history is not available.");
+            return;
+        }
+        LocalDate from = getValidDate("From date (yyyy-mm-dd): ");
+        LocalDate to = getValidDate("To date (yyyy-mm-dd): ");
+        ZoneId zone = ZoneId.systemDefault();
+        audit.flush();   // include transactions still queued for the history writer
+
+        StringBuilder line = new StringBuilder(96);
+        long[] closing = {account.getBalance()};
+        System.out.println("\nStatement for " + account.accountNumber + " (" + account.accountHolder + "), "
+                + from + " to " + to);
+        int count = history.statement(account.accountNumber, from.atStartOfDay(zone).toInstant().toEpochMilli(),
+                to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(), entry -> {
+                    if (line.length() == 0) {
+                        Money.appendTo(line.append("Opening balance: Rs. "), entry.balance - entry.amount);
+                        System.out.println(line);
+                    }
+                    line.setLength(0);
+                    STATEMENT_TIME.formatTo(Instant.ofEpochMilli(entry.timestamp).atZone(zone), line);
+                    line.append("  ").append(describe(entry));
+                    while (line.length() < 50) {
+                        line.append(' ');
+                    }
+                    Money.appendTo(line.append(entry.amount > 0 ? " +" : " -"), Math.abs(entry.amount));
+                    Money.appendTo(line.append("  balance "), entry.balance);
+                    System.out.println(line);
+                    closing[0] = entry.balance;
+                });
+        if (count == 0) {
+            System.out.println("No transactions in this period.");
+        } else {
+            System.out.println("Closing balance: Rs. " + Money.format(closing[0]) + " (" + count + " transaction(s))");
+        }
+    }
+
+    // Statement wording for one history entry
+    private static String describe(HistoryStore.Entry entry) {
+        switch (entry.type) {
+            case DEPOSIT:
+                return "Deposit";
+            case WITHDRAW:
+                return "Withdrawal";
+            case INTEREST:
+                return "Interest";
+            default:
+                return (entry.amount < 0 ? "Transfer to " : "Transfer from ") + entry.counterparty;
+        }
+    }
+
+    // Run every transaction in a file and write a per-line result file
+    private static void processBatchFile() {
+        System.out.print("Enter transaction file path: ");
+        Path input = Paths.get(scanner.nextLine().trim());
+        Path output = Paths.get(input + ".results");
+        try {
+            BatchProcessor.Summary summary = new BatchProcessor(ledger,
+                    Runtime.getRuntime().availableProcessors()).process(input, output);
+            System.out.printf("Processed %d transaction(s): %d succeeded, %d failed in %.2f s (%.0f tx/s).%n",
+                    summary.lines, summary.succeeded, summary.failed,
+                    summary.elapsedNanos / 1e9, summary.perSecond());
+            System.out.println("Results written to " + output);
+        } catch (IOException e) {
+            System.out.println("Batch failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Batch interrupted.");
+        }
+    }
+
     // Search for an account by account number
     private static BankAccount findAccount() {
         System.out.print("Enter Account Number: ");
         String accNum = scanner.nextLine().trim();
 
-        for (BankAccount acc : accounts) {
-            if (acc.accountNumber.equals(accNum)) {
-                return acc;
+        BankAccount acc = ledger.accounts().find(accNum);
+        if (acc == null) {
+            System.out.println("Account not found.");
+        }
+        return acc;
+    }
+
+    // Report the outcome of a deposit, withdrawal or transfer once it is durable
+    private static void printResult(String operation, TxResult result, BankAccount account) {
+        switch (result) {
+            case OK:
+                if (commit()) {
+                    System.out.println(operation + " successful. New balance: Rs. " + Money.format(account.getBalance()));
+                }
+                break;
+            case INVALID_AMOUNT:
+                System.out.println(operation + " amount must be positive.");
+                break;
+            case INSUFFICIENT_FUNDS:
+                System.out.println("Insufficient balance.");
+                break;
+            case SAME_ACCOUNT:
+                System.out.println("Cannot transfer to the same account.");
+                break;
+            case LIMIT_EXCEEDED:
+                System.out.println(operation + " declined: it would exceed the account's withdrawal limits.");
+                break;
+        }
+    }
+
+    // Wait for the journal to reach disk; false if it could not be written
+    private static boolean commit() {
+        try {
+            ledger.commit();
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error: transaction could not be saved (" + e.getMessage() + ").");
+            return false;
+        }
+    }
+
+    // Read a date in ISO format (yyyy-mm-dd), asking again until it is valid
+    private static LocalDate getValidDate(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            try {
+                return LocalDate.parse(scanner.nextLine().trim());
+            } catch (DateTimeParseException e) {
+                System.out.println("Invalid date. Please use the format yyyy-mm-dd.");
+            }
+        }
+    }
+
+    // Read a non-negative whole number, asking again until it is valid
+    private static long getValidCount(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            try {
+                long count = Long.parseLong(scanner.nextLine().trim());
+                if (count >= 0) {
+                    return count;
+                }
+                System.out.println("Number cannot be negative. Try again.");
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number. Please enter a whole number.");
             }
         }
-        System.out.println("Account not found.");
-        return null;
     }
 
-    // Validate and return a valid amount from user input
-    private static double getValidAmount(String prompt) {
-        double amount;
+    // Validate and return a valid amount from user input, in hundredths (paisa)
+    private static long getValidAmount(String prompt) {
+        long amount;
         while (true) {
             try {
                 System.out.print(prompt);
-                amount = Double.parseDouble(scanner.nextLine().trim());
+                amount = Money.parse(scanner.nextLine().trim());
                 if (amount < 0) {
                     System.out.println("Amount cannot be negative. Try again.");
                     continue;
                 }
                 return amount;
             } catch (NumberFormatException e) {
-                System.out.println("Invalid amount. Please enter a numeric value.");
+                System.out.println("Invalid amount. Please enter a numeric value with at most 2 decimals.");
+            }
+        }
+    }
+}
+
+/**
+ * BankingBenchmarks class
+ * Command-line stress and benchmark runs for the account model.
+ * Usage: java BankingBenchmarks transfers [accounts] [threads] [opsPerThread]
+ *        java BankingBenchmarks money [ops]
+ *        java BankingBenchmarks accrual [savingsAccounts]
+ *        java BankingBenchmarks audit [ops]
+ *        java BankingBenchmarks history [accounts] [transactions]
+ *        java BankingBenchmarks limits [ops] [threads]
+ *        java BankingBenchmarks orders [standingOrders] [accounts]
+ *        java BankingBenchmarks daygap
+ */
+class BankingBenchmarks {
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "transfers";
+        if (mode.equals("transfers")) {
+            int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+            int threads = args.length > 2 ? Integer.parseInt(args[2])
+                    : Math.max(4, Runtime.getRuntime().availableProcessors());
+            int ops = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+            System.exit(transferStress(accounts, threads, ops) ? 0 : 1);
+        }
+        if (mode.equals("money")) {
+            int ops = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+            System.exit(moneyHotPath(ops) ? 0 : 1);
+        }
+        if (mode.equals("audit")) {
+            auditThroughput(args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000);
+            return;
+        }
+        if (mode.equals("history")) {
+            statementCost(args.length > 1 ? Integer.parseInt(args[1]) : 10_000,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000);
+            return;
+        }
+        if (mode.equals("limits")) {
+            limitOverhead(args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 4);
+            return;
+        }
+        if (mode.equals("orders")) {
+            standingOrderRuns(args.length > 1 ? Integer.parseInt(args[1]) : 500_000,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 100_000);
+            return;
+        }
+        if (mode.equals("accrual")) {
+            accrual(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (mode.equals("daygap")) {
+            System.exit(dayGap() ? 0 : 1);
+        }
+        System.out.println("Unknown mode: " + mode);
+        System.exit(2);
+    }
+
+    // Random concurrent transfers plus some deposits and withdrawals; checks money is conserved
+    static boolean transferStress(int accountCount, int threads, int opsPerThread) throws InterruptedException {
+        BankAccount[] accounts = new BankAccount[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = new BankAccount("ACC" + i, "Holder " + i, 1_000_000);
+        }
+        long expected = 1_000_000L * accountCount;
+        LongAdder externalFlow = new LongAdder();   // deposits minus successful withdrawals
+        LongAdder completedTransfers = new LongAdder();
+
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < opsPerThread; i++) {
+                    BankAccount from = accounts[rnd.nextInt(accountCount)];
+                    long amount = 1 + rnd.nextInt(50_000);
+                    int op = rnd.nextInt(20);
+                    if (op == 0) {
+                        from.tryDeposit(amount);
+                        externalFlow.add(amount);
+                    } else if (op == 1) {
+                        if (from.tryWithdraw(amount) == TxResult.OK) externalFlow.add(-amount);
+                    } else {
+                        BankAccount to = accounts[rnd.nextInt(accountCount)];
+                        if (from.tryTransfer(to, amount) == TxResult.OK) completedTransfers.increment();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        boolean negative = false;
+        for (BankAccount a : accounts) {
+            total += a.getBalance();
+            negative |= a.getBalance() < 0;
+        }
+        expected += externalFlow.sum();
+        long totalOps = (long) threads * opsPerThread;
+        System.out.printf("%d ops on %d threads in %.2f s (%.0f ops/s), %d transfers completed%n",
+                totalOps, threads, elapsed / 1e9, totalOps / (elapsed / 1e9), completedTransfers.sum());
+        System.out.println("Expected total: Rs. " + Money.format(expected)
+                + ", actual total: Rs. " + Money.format(total));
+        boolean ok = total == expected && !negative;
+        System.out.println(ok ? "PASS: money conserved" : "FAIL: money not conserved");
+        return ok;
+    }
+
+    // Measures heap allocation of the transaction + formatting hot path on this thread
+    static boolean moneyHotPath(int ops) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        SavingsAccount a = new SavingsAccount("A", "Alice", 5_000_000, 725);
+        BankAccount b = new BankAccount("B", "Bob", 5_000_000);
+        StringBuilder line = new StringBuilder(64);
+        long checksum = 0;
+        for (int round = 0; round < 2; round++) {   // round 0 warms up the JIT
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                long amount = 1 + (i & 1023);
+                a.tryDeposit(amount);
+                a.tryTransfer(b, amount);
+                b.tryWithdraw(amount >> 1);
+                b.tryDeposit(amount >> 1);
+                line.setLength(0);
+                Money.appendTo(line.append("Balance: Rs. "), a.getBalance());
+                checksum += line.length() + a.interestOnBalance();
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            if (round == 1) {
+                System.out.printf("%d transactions in %.2f s (%.1f ns each), %d bytes allocated (%.4f bytes/tx)%n",
+                        ops, elapsed / 1e9, (double) elapsed / ops, allocated, (double) allocated / ops);
+                System.out.println("checksum " + checksum);
+                boolean ok = allocated < 64L * 1024;   // allow for the measuring calls themselves
+                System.out.println(ok ? "PASS: no per-transaction garbage" : "FAIL: hot path allocates");
+                return ok;
             }
         }
+        return false;
+    }
+
+    // Times a 30-day close and a posting pass over the given number of savings accounts
+    static void accrual(int count) {
+        InterestAccrual accrual = new InterestAccrual();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        accrual.closeDays(0);
+        for (int i = 0; i < count; i++) {
+            accrual.register(new SavingsAccount("S" + i, "Saver", rnd.nextLong(1, 100_000_000), rnd.nextLong(100, 900)));
+        }
+        long start = System.nanoTime();
+        accrual.closeDays(30);
+        long closed = System.nanoTime();
+        LongAdder posted = new LongAdder();
+        accrual.post((account, interest) -> {
+            account.credit(interest);
+            accrual.reset(account);
+            posted.add(interest);
+        });
+        long end = System.nanoTime();
+        System.out.printf("%d savings accounts: day close %.3f s, posting %.3f s, total interest Rs. %s%n",
+                count, (closed - start) / 1e9, (end - closed) / 1e9, Money.format(posted.sum()));
+    }
+
+    // Clock the day-gap check moves by hand
+    static final class ManualClock extends Clock {
+        private final ZoneId zone;
+        private volatile Instant now;
+
+        ManualClock(Instant now, ZoneId zone) {
+            this.now = now;
+            this.zone = zone;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new ManualClock(now, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    // Reopens a ledger after five days shut, then crosses a midnight while it is open;
+    // the first operation after each gap must not count towards the days already past
+    static boolean dayGap() throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate first = LocalDate.of(2025, 3, 10);
+        ManualClock clock = new ManualClock(first.atTime(12, 0).atZone(zone).toInstant(), zone);
+        Path dir = Files.createTempDirectory("daygap-check");
+        try (Ledger ledger = Ledger.open(dir, clock)) {
+            ledger.create(new SavingsAccount("DG1", "Saver", 1_000_00, 500));
+        }
+
+        // Shut from the 10th to the 15th: the 10th to the 14th close at Rs. 1000 on reopening
+        clock.set(first.plusDays(5).atTime(12, 0).atZone(zone).toInstant());
+        long afterReopen;
+        long afterMidnight;
+        try (Ledger ledger = Ledger.open(dir, clock)) {
+            SavingsAccount saver = (SavingsAccount) ledger.accounts().find("DG1");
+            ledger.deposit(saver, 500_00);
+            afterReopen = ledger.balanceDaysOf(saver);
+
+            // Just past midnight into the 16th: the 15th closes at Rs. 1500 before this deposit lands
+            clock.set(first.plusDays(6).atStartOfDay(zone).toInstant().plusSeconds(1));
+            ledger.deposit(saver, 200_00);
+            afterMidnight = ledger.balanceDaysOf(saver);
+        }
+        long afterRecovery;
+        long closedDay;
+        try (Ledger ledger = Ledger.open(dir, clock)) {
+            afterRecovery = ledger.balanceDaysOf((SavingsAccount) ledger.accounts().find("DG1"));
+            closedDay = ledger.lastClosedDay();
+        }
+
+        long expectedReopen = 1_000_00L * 5;
+        long expectedMidnight = expectedReopen + 1_500_00L;
+        System.out.println("Balance-days after reopening: " + afterReopen + " (expected " + expectedReopen + ")");
+        System.out.println("Balance-days after midnight: " + afterMidnight + " (expected " + expectedMidnight + ")");
+        System.out.println("Balance-days after recovery: " + afterRecovery + ", last closed day "
+                + LocalDate.ofEpochDay(closedDay));
+        boolean ok = afterReopen == expectedReopen && afterMidnight == expectedMidnight
+                && afterRecovery == expectedMidnight && closedDay == first.plusDays(5).toEpochDay();
+        System.out.println(ok ? "PASS: missed days closed before new operations" : "FAIL: balance-days backdated");
+        return ok;
+    }
+
+    // Transaction throughput with the audit log writing to a rotating file
+    static void auditThroughput(int ops) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Path dir = Files.createTempDirectory("audit-bench");
+        AuditLog log = new AuditLog(1 << 16);
+        log.subscribe(new RotatingAuditFile(dir, 256L << 20, 2));
+        BankAccount.setAuditLog(log);
+        BankAccount a = new BankAccount("A", "Alice", 1_000_000);
+        BankAccount b = new BankAccount("B", "Bob", 1_000_000);
+        try {
+            for (int round = 0; round < 2; round++) {   // round 0 warms up the JIT
+                long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long start = System.nanoTime();
+                for (int i = 0; i < ops; i++) {
+                    a.tryTransfer(b, 1 + (i & 255));
+                    b.tryTransfer(a, 1 + (i & 255));
+                }
+                long elapsed = System.nanoTime() - start;
+                long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+                log.flush();
+                long drained = System.nanoTime() - start;
+                if (round == 1) {
+                    System.out.printf("%d audited transfers: %.1f ns each on the caller (%.2f bytes/tx), "
+                                    + "all written after %.2f s; ring-full spins: %d%n",
+                            2L * ops, (double) elapsed / (2L * ops), (double) allocated / (2L * ops),
+                            drained / 1e9, log.fullRingSpins());
+                }
+            }
+        } finally {
+            BankAccount.setAuditLog(null);
+            log.close();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path f : files) {
+                    Files.delete(f);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // Monthly statements against a year of history spread over many accounts
+    static void statementCost(int accountCount, int transactions) throws IOException {
+        Path dir = Files.createTempDirectory("history-bench");
+        BankAccount[] accounts = new BankAccount[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = new BankAccount("H" + i, "Holder " + i, 0);
+        }
+        long yearStart = LocalDate.of(2025, 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long step = TimeUnit.DAYS.toMillis(365) / transactions;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HistoryStore store = HistoryStore.open(dir);
+        try {
+            AuditEvent e = new AuditEvent();
+            e.result = TxResult.OK;
+            long start = System.nanoTime();
+            for (int i = 0; i < transactions; i++) {
+                e.timestamp = yearStart + i * step;
+                e.account = accounts[random.nextInt(accountCount)];
+                boolean transfer = (i & 3) == 0;
+                e.type = transfer ? AuditEvent.Type.TRANSFER : AuditEvent.Type.DEPOSIT;
+                e.counterparty = transfer ? accounts[random.nextInt(accountCount)] : null;
+                e.amount = 100 + (i & 1023);
+                store.onEvent(e);
+                if ((i & 4095) == 4095) {
+                    store.onBatchEnd();
+                }
+            }
+            store.onBatchEnd();
+            System.out.printf("Recorded %d transactions for %d accounts in %.2f s%n",
+                    transactions, accountCount, (System.nanoTime() - start) / 1e9);
+
+            long june = LocalDate.of(2025, 6, 1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            long july = LocalDate.of(2025, 7, 1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            LongAdder lines = new LongAdder();
+            for (int round = 0; round < 2; round++) {   // round 0 warms up the JIT
+                lines.reset();
+                start = System.nanoTime();
+                for (int i = 0; i < accountCount; i++) {
+                    store.statement(accounts[i].accountNumber, june, july, entry -> lines.increment());
+                }
+                long total = System.nanoTime() - start;
+                if (round == 1) {
+                    System.out.printf("%d June statements: %.1f us each, %.1f lines each, %.0f ns per line "
+                                    + "(history holds %.0f transactions per account)%n",
+                            accountCount, total / 1e3 / accountCount, (double) lines.sum() / accountCount,
+                            (double) total / Math.max(1, lines.sum()),
+                            (double) store.transactionCount(accounts[0].accountNumber));
+                }
+            }
+        } finally {
+            store.close();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path f : files) {
+                    Files.delete(f);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // Cost of velocity checks on withdrawals and transfers, and their accuracy under contention
+    static void limitOverhead(int ops, int threadCount) throws InterruptedException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        VelocityLimits generous = new VelocityLimits(Long.MAX_VALUE / 4, Integer.MAX_VALUE,
+                Long.MAX_VALUE / 4, Integer.MAX_VALUE);
+        double[] nanos = new double[2];
+        for (int round = 0; round < 3; round++) {   // round 0 warms up the JIT
+            for (int limited = 0; limited < 2; limited++) {
+                BankAccount a = new BankAccount("A", "Alice", Long.MAX_VALUE / 4);
+                BankAccount b = new BankAccount("B", "Bob", 0);
+                if (limited == 1) {
+                    a.setVelocityLimits(generous);
+                }
+                long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long start = System.nanoTime();
+                for (int i = 0; i < ops; i += 2) {
+                    a.tryWithdraw(1 + (i & 7));
+                    a.tryTransfer(b, 1 + (i & 7));
+                }
+                long elapsed = System.nanoTime() - start;
+                long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+                if (round == 2) {
+                    nanos[limited] = (double) elapsed / ops;
+                    System.out.printf("%s: %.1f ns per withdrawal/transfer, %.4f bytes/tx%n",
+                            limited == 1 ? "with limits   " : "without limits", nanos[limited], (double) allocated / ops);
+                }
+            }
+        }
+        System.out.printf("Limit check overhead: %.1f ns per transaction%n", nanos[1] - nanos[0]);
+
+        // Contention: every thread hammers one account capped at 1000 operations and Rs. 5000 a minute
+        BankAccount shared = new BankAccount("S", "Shared", 1_000_000_00);
+        BankAccount sink = new BankAccount("T", "Sink", 0);
+        shared.setVelocityLimits(new VelocityLimits(5_000_00, 1000, 0, 0));
+        LongAdder succeeded = new LongAdder();
+        LongAdder moved = new LongAdder();
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    long amount = 1_00 + (i % 5) * 1_00;   // Rs. 1 to 5
+                    TxResult r = (i & 1) == 0 ? shared.tryWithdraw(amount) : shared.tryTransfer(sink, amount);
+                    if (r == TxResult.OK) {
+                        succeeded.increment();
+                        moved.add(amount);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        boolean withinLimits = succeeded.sum() <= 1000 && moved.sum() <= 5_000_00;
+        System.out.printf("%d threads x 5000 attempts: %d succeeded, Rs. %s moved%n",
+                threadCount, succeeded.sum(), Money.format(moved.sum()));
+        System.out.println(withinLimits ? "PASS: limits held under contention" : "FAIL: limits exceeded");
+    }
+
+    // Daily standing order runs: cost per due order, idle days, and catch-up after downtime
+    static void standingOrderRuns(int orderCount, int accountCount) throws IOException {
+        try (Ledger ledger = Ledger.inMemory()) {
+            BankAccount[] accounts = new BankAccount[accountCount];
+            for (int i = 0; i < accountCount; i++) {
+                accounts[i] = new BankAccount("SO" + i, "Holder " + i, 1_000_000_00);
+                ledger.create(accounts[i]);
+            }
+            long monthStart = LocalDate.of(2025, 1, 1).toEpochDay();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < orderCount; i++) {
+                int from = random.nextInt(accountCount);
+                int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+                // Rent-like orders bunch up on the 1st; the rest spread over the month
+                long first = monthStart + (random.nextInt(4) == 0 ? 0 : random.nextInt(28));
+                ledger.createStandingOrder(accounts[from], accounts[to], 1_00 + random.nextInt(500_00),
+                        StandingOrder.Frequency.MONTHLY, first);
+            }
+
+            ledger.runStandingOrders(monthStart - 1);   // nothing due: warms up the code path
+            long busiest = 0;
+            long busiestNanos = 0;
+            long totalPaid = 0;
+            long totalNanos = 0;
+            for (long day = monthStart; day < monthStart + 28; day++) {
+                Ledger.OrderRunSummary run = ledger.runStandingOrders(day);
+                totalPaid += run.paid.sum();
+                totalNanos += run.elapsedNanos;
+                if (run.due > busiest) {
+                    busiest = run.due;
+                    busiestNanos = run.elapsedNanos;
+                }
+            }
+            System.out.printf("%d orders over 28 days: %d payments in %.2f s (%.0f payments/s)%n",
+                    orderCount, totalPaid, totalNanos / 1e9, totalPaid / (totalNanos / 1e9));
+            System.out.printf("Busiest day: %d due in %.1f ms%n", busiest, busiestNanos / 1e6);
+
+            Ledger.OrderRunSummary idle = ledger.runStandingOrders(monthStart + 28);   // orders all wait for February
+            System.out.printf("Day with nothing due: %d due in %.1f us%n", idle.due, idle.elapsedNanos / 1e3);
+
+            Ledger.OrderRunSummary catchUp = ledger.runStandingOrders(monthStart + 31 + 28 + 31 + 30);
+            System.out.printf("Catch-up after three months down: %d orders, %d payments in %.2f s%n",
+                    catchUp.due, catchUp.paid.sum(), catchUp.elapsedNanos / 1e9);
+        }
     }
 }
@@ -1,8 +1,13 @@
 import java.io.*;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 // Book class
 class Book implements Serializable {
+    // Computed UID of the original class, so library.dat files saved before the due-day cache still load
+    private static final long serialVersionUID = -223348758873772931L;
     private int bookId;
     private String title;
     private String author;
@@ -10,6 +15,8 @@ class Book implements Serializable {
     private boolean isIssued;
     private String issuedTo;
     private Date dueDate;
+    private transient long dueEpochDay;    // cached dueDate as java.time epoch day
+    private transient ZoneId dueDayZone;   // zone dueEpochDay was computed in, null if not cached
 
     public Book(int bookId, String title, String author, int year) {
         this.bookId = bookId;
@@ -29,16 +36,27 @@ class Book implements Serializable {
     public String getIssuedTo() { return issuedTo; }
     public Date getDueDate() { return dueDate; }
 
+    // Due date as an epoch day in the given zone (computed once per issue and zone)
+    public long getDueEpochDay(ZoneId zone) {
+        if (!zone.equals(dueDayZone)) {
+            dueEpochDay = OverdueReport.toEpochDay(dueDate, zone);
+            dueDayZone = zone;
+        }
+        return dueEpochDay;
+    }
+
     public void issueBook(String memberId, Date dueDate) {
         this.isIssued = true;
         this.issuedTo = memberId;
         this.dueDate = dueDate;
+        this.dueDayZone = null;
     }
 
     public void returnBook() {
         this.isIssued = false;
         this.issuedTo = null;
         this.dueDate = null;
+        this.dueDayZone = null;
     }
 
     @Override
@@ -64,10 +82,261 @@ class Member {
     public String getName() { return name; }
 }
 
+// OverdueReport class (parallel fine calculation across the catalog)
+class OverdueReport {
+    static final int FINE_PER_DAY = 10;        // Rs.10 per late day
+    private static final int LEAF_SIZE = 8192; // books handled by one fork/join leaf
+
+    private final List<Book> books;
+    private final long asOfDay;
+    private final int[] daysLate;              // per catalog position, 0 if not overdue
+    private int overdueCount;
+    private long totalFine;
+    private final ConcurrentHashMap<String, MemberFine> memberTotals = new ConcurrentHashMap<>();
+
+    private OverdueReport(List<Book> books, long asOfDay) {
+        this.books = books;
+        this.asOfDay = asOfDay;
+        this.daysLate = new int[books.size()];
+    }
+
+    // Whole days between the due day and the "as of" day, 0 if not late
+    static long daysLate(long dueDay, long asOfDay) {
+        return Math.max(0, asOfDay - dueDay);
+    }
+
+    static long fineFor(long daysLate) {
+        return daysLate * FINE_PER_DAY;
+    }
+
+    static long toEpochDay(Date date, ZoneId zone) {
+        return LocalDate.ofInstant(date.toInstant(), zone).toEpochDay();
+    }
+
+    // Build the report for every issued book as of the given date
+    static OverdueReport compute(List<Book> books, LocalDate asOf) {
+        OverdueReport report = new OverdueReport(books, asOf.toEpochDay());
+        long[] total = ForkJoinPool.commonPool()
+                .invoke(report.new ScanTask(0, books.size(), ZoneId.systemDefault()));
+        report.overdueCount = (int) total[0];
+        report.totalFine = total[1];
+        return report;
+    }
+
+    public int getOverdueCount() { return overdueCount; }
+    public long getTotalFine() { return totalFine; }
+    public Map<String, MemberFine> getMemberTotals() { return memberTotals; }
+
+    public void print() {
+        if (overdueCount == 0) {
+            System.out.println("No overdue books as of " + LocalDate.ofEpochDay(asOfDay) + ".");
+            return;
+        }
+        System.out.printf("%-5s %-25s %-10s %-12s %-10s %-8s\n",
+                "ID", "Title", "Member", "Due", "DaysLate", "Fine");
+        for (int i = 0; i < daysLate.length; i++) {
+            if (daysLate[i] > 0) {
+                Book b = books.get(i);
+                System.out.printf("%-5d %-25s %-10s %-12s %-10d %-8d\n",
+                        b.getBookId(), b.getTitle(), b.getIssuedTo(),
+                        LocalDate.ofEpochDay(asOfDay - daysLate[i]), daysLate[i], fineFor(daysLate[i]));
+            }
+        }
+        System.out.println("\nFines per member:");
+        for (Map.Entry<String, MemberFine> e : new TreeMap<>(memberTotals).entrySet()) {
+            System.out.printf("%-10s %4d book(s)  Rs.%d\n",
+                    e.getKey(), e.getValue().books.sum(), e.getValue().fine.sum());
+        }
+        System.out.println("Total overdue: " + overdueCount + " book(s), Total fine = Rs." + totalFine);
+    }
+
+    // Running totals for one member, shared by all fork/join leaves
+    static class MemberFine {
+        final LongAdder books = new LongAdder();
+        final LongAdder fine = new LongAdder();
+    }
+
+    // Returns {overdue books, total fine} for its range
+    private class ScanTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+        private final ZoneId zone;
+
+        ScanTask(int from, int to, ZoneId zone) {
+            this.from = from;
+            this.to = to;
+            this.zone = zone;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= LEAF_SIZE) {
+                return scan();
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(from, mid, zone);
+            left.fork();
+            long[] right = new ScanTask(mid, to, zone).compute();
+            long[] result = left.join();
+            result[0] += right[0];
+            result[1] += right[1];
+            return result;
+        }
+
+        private long[] scan() {
+            long count = 0, fines = 0;
+            for (int i = from; i < to; i++) {
+                Book b = books.get(i);
+                if (!b.isIssued() || b.getDueDate() == null) continue;
+                long late = daysLate(b.getDueEpochDay(zone), asOfDay);
+                if (late == 0) continue;
+                long fine = fineFor(late);
+                daysLate[i] = (int) late;
+                count++;
+                fines += fine;
+                MemberFine m = memberTotals.get(b.getIssuedTo());
+                if (m == null) {
+                    m = memberTotals.computeIfAbsent(b.getIssuedTo(), k -> new MemberFine());
+                }
+                m.books.increment();
+                m.fine.add(fine);
+            }
+            return new long[] {count, fines};
+        }
+    }
+}
+
+// DueDateWheel class (hierarchical timing wheel of due dates, one tick per day)
+class DueDateWheel {
+    interface OverdueListener {
+        void onOverdue(Book book, long dueDay);
+    }
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;  // 64 day-slots per level
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;              // level L slot spans 64^L days
+
+    // One scheduled book, linked into exactly one slot list
+    private static class Entry {
+        final Book book;
+        final long fireDay;   // first day on which the book counts as overdue
+        Entry prev, next;
+        Entry[] list;         // slot array holding this entry
+        int slot;
+
+        Entry(Book book, long fireDay) {
+            this.book = book;
+            this.fireDay = fireDay;
+        }
+    }
+
+    private final Entry[][] wheel = new Entry[LEVELS][SLOTS];
+    private final Entry[] pending = new Entry[1];   // already due, fired on next advance
+    private final Entry[] overflow = new Entry[1];  // beyond the top level's range
+    private final Map<Integer, Entry> byBookId = new HashMap<>();
+    private long currentDay;
+
+    public DueDateWheel(long currentDay) {
+        this.currentDay = currentDay;
+    }
+
+    public int size() { return byBookId.size(); }
+
+    // Schedule an overdue event for an issued book
+    public void schedule(Book book, ZoneId zone) {
+        cancel(book.getBookId());
+        Entry e = new Entry(book, book.getDueEpochDay(zone) + 1);
+        byBookId.put(book.getBookId(), e);
+        place(e);
+    }
+
+    // Drop the event for a book that was returned or deleted
+    public void cancel(int bookId) {
+        Entry e = byBookId.remove(bookId);
+        if (e != null) unlink(e);
+    }
+
+    // Move the wheel forward to the given day, firing every book that became overdue
+    public void advanceTo(long day, OverdueListener listener) {
+        fire(pending, 0, listener);
+        while (currentDay < day) {
+            if (byBookId.isEmpty()) {
+                currentDay = day;   // nothing scheduled, skip idle days
+                break;
+            }
+            currentDay++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentDay & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    if (level == LEVELS - 1) cascade(overflow, 0);
+                    cascade(wheel[level], (int) (currentDay >>> (SLOT_BITS * level)) & MASK);
+                }
+            }
+            fire(pending, 0, listener);     // entries cascaded onto exactly this day
+            fire(wheel[0], (int) currentDay & MASK, listener);
+        }
+    }
+
+    private void place(Entry e) {
+        long delta = e.fireDay - currentDay;
+        if (delta <= 0) {
+            link(e, pending, 0);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                link(e, wheel[level], (int) (e.fireDay >>> (SLOT_BITS * level)) & MASK);
+                return;
+            }
+        }
+        link(e, overflow, 0);
+    }
+
+    // Re-place every entry of a higher-level slot relative to the current day
+    private void cascade(Entry[] list, int slot) {
+        Entry e = list[slot];
+        list[slot] = null;
+        while (e != null) {
+            Entry next = e.next;
+            e.prev = e.next = null;
+            place(e);
+            e = next;
+        }
+    }
+
+    private void fire(Entry[] list, int slot, OverdueListener listener) {
+        Entry e = list[slot];
+        list[slot] = null;
+        while (e != null) {
+            Entry next = e.next;
+            byBookId.remove(e.book.getBookId());
+            listener.onOverdue(e.book, e.fireDay - 1);
+            e = next;
+        }
+    }
+
+    private static void link(Entry e, Entry[] list, int slot) {
+        e.list = list;
+        e.slot = slot;
+        e.prev = null;
+        e.next = list[slot];
+        if (e.next != null) e.next.prev = e;
+        list[slot] = e;
+    }
+
+    private static void unlink(Entry e) {
+        if (e.prev != null) e.prev.next = e.next;
+        else e.list[e.slot] = e.next;
+        if (e.next != null) e.next.prev = e.prev;
+        e.prev = e.next = null;
+    }
+}
+
 // Library class
 class Library {
     private ArrayList<Book> books = new ArrayList<>();
     private static final String FILE_NAME = "C:\\Users\\hp\\OneDrive\\Desktop\\library.dat";
+    private DueDateWheel dueWheel = new DueDateWheel(LocalDate.now().toEpochDay());
 
     // Add Book
     public void addBook(Book book) throws Exception {
@@ -116,6 +385,7 @@ class Library {
                 Calendar cal = Calendar.getInstance();
                 cal.add(Calendar.DATE, 7); // due in 7 days
                 b.issueBook(memberId, cal.getTime());
+                dueWheel.schedule(b, ZoneId.systemDefault());
                 System.out.println("Book issued successfully. Due Date: " + cal.getTime());
                 return;
             }
@@ -128,15 +398,14 @@ class Library {
         for (Book b : books) {
             if (b.getBookId() == bookId) {
                 if (!b.isIssued()) throw new Exception("Book was not issued!");
-                Date today = new Date();
-                long diff = today.getTime() - b.getDueDate().getTime();
-                if (diff > 0) {
-                    long daysLate = diff / (1000 * 60 * 60 * 24);
-                    int fine = (int) daysLate * 10; // Rs.10 per late day
-                    System.out.println("Book returned late. Fine = Rs." + fine);
+                long daysLate = OverdueReport.daysLate(
+                        b.getDueEpochDay(ZoneId.systemDefault()), LocalDate.now().toEpochDay());
+                if (daysLate > 0) {
+                    System.out.println("Book returned late. Fine = Rs." + OverdueReport.fineFor(daysLate));
                 } else {
                     System.out.println("Book returned on time.");
                 }
+                dueWheel.cancel(bookId);
                 b.returnBook();
                 return;
             }
@@ -151,6 +420,7 @@ class Library {
             Book b = it.next();
             if (b.getBookId() == bookId) {
                 it.remove();
+                dueWheel.cancel(bookId);
                 System.out.println("Book deleted successfully.");
                 return;
             }
@@ -158,6 +428,33 @@ class Library {
         throw new Exception("Book not found!");
     }
 
+    // Overdue and fine report for all issued books
+    public void overdueReport(LocalDate asOf) {
+        OverdueReport.compute(books, asOf).print();
+    }
+
+    // Notify about every book that became overdue since the last run
+    public void processOverdueNotices(LocalDate today) {
+        int[] count = {0};
+        dueWheel.advanceTo(today.toEpochDay(), (book, dueDay) -> {
+            System.out.println("OVERDUE: Book " + book.getBookId() + " '" + book.getTitle()
+                    + "' issued to " + book.getIssuedTo() + " was due " + LocalDate.ofEpochDay(dueDay));
+            count[0]++;
+        });
+        System.out.println(count[0] + " overdue notice(s) sent. Books still being tracked: " + dueWheel.size());
+    }
+
+    // Rebuild the due-date wheel from the issued books
+    private void rebuildDueWheel() {
+        ZoneId zone = ZoneId.systemDefault();
+        dueWheel = new DueDateWheel(LocalDate.now().toEpochDay());
+        for (Book b : books) {
+            if (b.isIssued() && b.getDueDate() != null) {
+                dueWheel.schedule(b, zone);
+            }
+        }
+    }
+
     // Save books to file
     public void saveToFile() throws IOException {
         ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME));
@@ -172,6 +469,7 @@ class Library {
             ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file));
             books = (ArrayList<Book>) ois.readObject();
             ois.close();
+            rebuildDueWheel();
         }
     }
 }
@@ -196,7 +494,9 @@ public class LibraryManagementSystem {
             System.out.println("4. Issue Book");
             System.out.println("5. Return Book");
             System.out.println("6. Delete Book");
-            System.out.println("7. Save & Exit");
+            System.out.println("7. Overdue Report");
+            System.out.println("8. Process Overdue Notices");
+            System.out.println("9. Save & Exit");
             System.out.print("Enter choice: ");
             int choice = sc.nextInt();
             sc.nextLine();
@@ -240,6 +540,14 @@ public class LibraryManagementSystem {
                         lib.deleteBook(deleteId);
                         break;
                     case 7:
+                        System.out.print("Enter report date (yyyy-mm-dd, blank for today): ");
+                        String asOf = sc.nextLine().trim();
+                        lib.overdueReport(asOf.isEmpty() ? LocalDate.now() : LocalDate.parse(asOf));
+                        break;
+                    case 8:
+                        lib.processOverdueNotices(LocalDate.now());
+                        break;
+                    case 9:
                         lib.saveToFile();
                         System.out.println("Records saved. Exiting...");
                         return;
@@ -1,148 +1,1450 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.InputMismatchException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.stream.IntStream;
 
 class Student {
+    static final int SUBJECTS = 5;
+
     private String name;
     private String rollNo;
     private String department;
     private int semester;
-    private double[] marks; // Marks for 5 subjects
+    private double[] marks; // Marks for 5 subjects, unless kept in a MarksColumns store
+    private MarksColumns store;
+    private int row = -1;   // row in the store once marks are entered
+    private boolean graded; // marks have been entered
+    private int marksVersion; // bumped every time marks are recorded
+    private int record = -1;  // row in the persistent StudentStore, if saved
     private double totalMarks;
     private double percentage;
     private double gpa;
 
-    // Constructor
-    public Student(String name, String rollNo, String department, int semester) {
-        this.name = name;
-        this.rollNo = rollNo;
-        this.department = department;
-        this.semester = semester;
-        this.marks = new double[5]; // 5 subjects
+    // Constructor
+    public Student(String name, String rollNo, String department, int semester) {
+        this.name = name;
+        this.rollNo = rollNo;
+        this.department = department;
+        this.semester = semester;
+        this.marks = new double[SUBJECTS]; // 5 subjects
+    }
+
+    // Keep this student's marks in a column store from now on
+    public void useStore(MarksColumns columns) {
+        if (store == null) {
+            store = columns;
+            if (graded) {
+                row = store.addRow(marks);
+            }
+            marks = null;
+        }
+    }
+
+    public double getMark(int subject) {
+        if (store == null) {
+            return marks[subject];
+        }
+        return row < 0 ? 0 : store.get(subject, row);
+    }
+
+    private void setMarks(double[] entered) {
+        if (store == null) {
+            System.arraycopy(entered, 0, marks, 0, SUBJECTS);
+        } else if (row < 0) {
+            row = store.addRow(entered);
+        } else {
+            store.set(row, entered);
+        }
+    }
+
+    // Record all five marks (each 0-100) and recompute percentage and GPA
+    public void recordMarks(double[] entered) {
+        totalMarks = 0;
+        for (int i = 0; i < SUBJECTS; i++) {
+            totalMarks += entered[i];
+        }
+        setMarks(entered);
+        calculatePercentageAndGPA();
+        graded = true;
+        marksVersion++;
+    }
+
+    int marksVersion() {
+        return marksVersion;
+    }
+
+    int record() {
+        return record;
+    }
+
+    void setRecord(int record) {
+        this.record = record;
+    }
+
+    public boolean hasMarks() {
+        return graded;
+    }
+
+    // Method to enter marks
+    public void enterMarks(Scanner sc) {
+        double[] entered = new double[SUBJECTS];
+        for (int i = 0; i < SUBJECTS; i++) {
+            System.out.print("Enter marks for Subject " + (i + 1) + " (out of 100): ");
+            try {
+                entered[i] = sc.nextDouble();
+            } catch (InputMismatchException e) {
+                System.out.println("Invalid input! Marks should be numeric.");
+                sc.nextLine(); // clear buffer
+                i--; // repeat this subject input
+                continue;
+            }
+            if (!(entered[i] >= 0 && entered[i] <= 100)) {   // also rejects NaN, which nextDouble accepts
+                System.out.println("Invalid marks! Enter between 0 and 100.");
+                i--; // repeat this subject input
+            }
+        }
+        recordMarks(entered);
+    }
+
+    // Calculate percentage and GPA
+    private void calculatePercentageAndGPA() {
+        percentage = (totalMarks / 500) * 100;
+        gpa = gpaFor(percentage);
+    }
+
+    static double gpaFor(double percentage) {
+        double gpa = percentage / 20; // simple formula: 100% = 5.0 GPA
+        if (gpa > 4.0) gpa = 4.0; // cap GPA at 4.0
+        return gpa;
+    }
+
+    // Display individual student result
+    public void displayResult() {
+        System.out.println("========================================");
+        System.out.println("Student Name: " + name);
+        System.out.println("Roll No: " + rollNo);
+        System.out.println("Department: " + department);
+        System.out.println("Semester: " + semester);
+        System.out.println("Subject-wise Marks:");
+        for (int i = 0; i < SUBJECTS; i++) {
+            System.out.println("  Subject " + (i + 1) + ": " + getMark(i));
+        }
+        System.out.println("Total Marks: " + totalMarks + " / 500");
+        System.out.println("Percentage: " + percentage + "%");
+        System.out.println("GPA: " + gpa);
+        System.out.println("========================================");
+    }
+
+    public double getGPA() {
+        return gpa;
+    }
+
+    public double getPercentage() {
+        return percentage;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public int getSemester() {
+        return semester;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRollNo() {
+        return rollNo;
+    }
+}
+
+// Class representing the marks of a whole cohort column by column: one
+// primitive array per subject, one row per student whose marks were entered.
+// Statistics are straight passes over the arrays, split into chunks that run
+// in parallel.
+class MarksColumns {
+    private static final int CHUNK = 1 << 16;
+
+    private double[][] columns = new double[Student.SUBJECTS][1024];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public double get(int subject, int row) {
+        return columns[subject][row];
+    }
+
+    public int addRow(double[] marks) {
+        if (size == columns[0].length) {
+            for (int s = 0; s < Student.SUBJECTS; s++) {
+                columns[s] = Arrays.copyOf(columns[s], size * 2);
+            }
+        }
+        set(size, marks);
+        return size++;
+    }
+
+    public void set(int row, double[] marks) {
+        for (int s = 0; s < Student.SUBJECTS; s++) {
+            columns[s][row] = marks[s];
+        }
+    }
+
+    private IntStream chunks(boolean parallel) {
+        IntStream chunks = IntStream.range(0, (size + CHUNK - 1) / CHUNK);
+        return parallel ? chunks.parallel() : chunks;
+    }
+
+    // Mean, standard deviation, min, max and histogram of one subject
+    public SubjectStats subjectStats(int subject, boolean parallel) {
+        double[] column = columns[subject];
+        return chunks(parallel).mapToObj(c -> {
+            SubjectStats stats = new SubjectStats();
+            int from = c * CHUNK;
+            int to = Math.min(from + CHUNK, size);
+            double sum = 0;
+            double sumOfSquares = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double mark = column[i];
+                sum += mark;
+                sumOfSquares += mark * mark;
+                min = Math.min(min, mark);
+                max = Math.max(max, mark);
+            }
+            for (int i = from; i < to; i++) {
+                stats.histogram[SubjectStats.bucket(column[i])]++;
+            }
+            stats.count = to - from;
+            stats.sum = sum;
+            stats.sumOfSquares = sumOfSquares;
+            stats.min = min;
+            stats.max = max;
+            return stats;
+        }).reduce(new SubjectStats(), SubjectStats::merge);
+    }
+
+    // GPA of every row, recomputed from the marks
+    public double[] gpas(boolean parallel) {
+        double[] gpas = new double[size];
+        chunks(parallel).forEach(c -> {
+            int from = c * CHUNK;
+            int to = Math.min(from + CHUNK, size);
+            for (int i = from; i < to; i++) {
+                gpas[i] = columns[0][i] + columns[1][i] + columns[2][i] + columns[3][i] + columns[4][i];
+            }
+            for (int i = from; i < to; i++) {
+                gpas[i] = Student.gpaFor(gpas[i] / 500 * 100);
+            }
+        });
+        return gpas;
+    }
+}
+
+// Class representing summary statistics of one subject's marks
+class SubjectStats {
+    static final int BUCKETS = 10;      // 0-9, 10-19, ..., 90-100
+
+    int count;
+    double sum;
+    double sumOfSquares;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    final int[] histogram = new int[BUCKETS];
+
+    static int bucket(double mark) {
+        return Math.min((int) (mark / 10), BUCKETS - 1);
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public double standardDeviation() {
+        if (count == 0) {
+            return 0;
+        }
+        double mean = mean();
+        return Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+    }
+
+    SubjectStats merge(SubjectStats other) {
+        SubjectStats merged = new SubjectStats();
+        merged.count = count + other.count;
+        merged.sum = sum + other.sum;
+        merged.sumOfSquares = sumOfSquares + other.sumOfSquares;
+        merged.min = Math.min(min, other.min);
+        merged.max = Math.max(max, other.max);
+        for (int b = 0; b < BUCKETS; b++) {
+            merged.histogram[b] = histogram[b] + other.histogram[b];
+        }
+        return merged;
+    }
+}
+
+// Class representing the GPA leaderboard: an indexable skip list ordered by GPA
+// (highest first, ties by roll number). Every link also stores how many students
+// it skips, so rank and position lookups take O(log n) and the top K take O(K).
+class GpaLeaderboard {
+    private static final int MAX_LEVEL = 32;
+
+    private static final class Node {
+        final Student student;
+        final double gpa;               // GPA the node is filed under
+        final String rollNo;            // tie-breaker, kept here to save a hop per comparison
+        final Node[] next;
+        final int[] span;               // students skipped by next[i], counting the one it lands on
+
+        Node(Student student, double gpa, int level) {
+            this.student = student;
+            this.gpa = gpa;
+            this.rollNo = student != null ? student.getRollNo() : null;
+            next = new Node[level];
+            span = new int[level];
+        }
+    }
+
+    private final Node head = new Node(null, 0, MAX_LEVEL);
+    private final Random random = new Random();
+    private int level = 1;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    // Does a come before the key (gpa, rollNo)?
+    private static boolean before(Node a, double gpa, String rollNo) {
+        return a.gpa > gpa || (a.gpa == gpa && a.rollNo.compareTo(rollNo) < 0);
+    }
+
+    private int randomLevel() {
+        int l = 1;
+        while (l < MAX_LEVEL && random.nextInt(4) == 0) {
+            l++;
+        }
+        return l;
+    }
+
+    // File a student under the given GPA
+    public void add(Student student, double gpa) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];        // position of update[i]
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], gpa, student.getRollNo())) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int l = randomLevel();
+        if (l > level) {
+            for (int i = level; i < l; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = l;
+        }
+        Node node = new Node(student, gpa, l);
+        for (int i = 0; i < l; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = l; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    // Remove a student filed under the given GPA; false if not there
+    public boolean remove(Student student, double gpa) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], gpa, student.getRollNo())) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node node = x.next[0];
+        if (node == null || node.student != student) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    // 1-based rank of a student filed under the given GPA; 0 if not there
+    public int rank(Student student, double gpa) {
+        Node x = head;
+        int rank = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], gpa, student.getRollNo())) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+        }
+        return x.next[0] != null && x.next[0].student == student ? rank + 1 : 0;
+    }
+
+    // Student at a 1-based rank
+    public Student atRank(int rank) {
+        if (rank < 1 || rank > size) {
+            throw new IndexOutOfBoundsException("rank " + rank + " of " + size);
+        }
+        Node x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x.student;
+            }
+        }
+        throw new IllegalStateException("corrupt leaderboard");
+    }
+
+    // The k best students, best first
+    public List<Student> top(int k) {
+        List<Student> top = new ArrayList<>(Math.min(k, size));
+        for (Node x = head.next[0]; x != null && top.size() < k; x = x.next[0]) {
+            top.add(x.student);
+        }
+        return top;
+    }
+
+    // Student at the p-th GPA percentile (0-100, nearest rank: p% of students have this GPA or lower)
+    public Student atPercentile(double p) {
+        if (size == 0) {
+            return null;
+        }
+        int fromBottom = Math.max(1, (int) Math.ceil(p / 100 * size));
+        return atRank(size - Math.min(fromBottom, size) + 1);
+    }
+}
+
+// Class representing a KLL quantile sketch (Karnin, Lang and Liberty): a stack of
+// compactors, where level h holds items that each stand for 2^h values. When the
+// sketch outgrows its budget, the lowest full level is sorted and every other item
+// (random offset) is promoted. Memory stays around 3k doubles however many values
+// are added, ranks are off by roughly 1.7/k, and two sketches merge by stacking
+// their levels, so cohort-wide answers come from combining small summaries.
+class KllSketch {
+    private static final double SHRINK = 2.0 / 3;   // each level down gets this much less room
+
+    private final int k;
+    private final Random random = new Random();
+    private double[][] levels = {new double[8]};
+    private int[] sizes = {0};
+    private int retained;
+    private int capacity;                            // total room over all levels
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public KllSketch(int k) {
+        this.k = k;
+        capacity = levelCapacity(0);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public int retained() {
+        return retained;
+    }
+
+    private int levelCapacity(int level) {
+        int depth = levels.length - level - 1;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(SHRINK, depth)));
+    }
+
+    public void update(double value) {
+        append(0, value);
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (retained > capacity) {
+            compress();
+        }
+    }
+
+    // Fold another sketch into this one; other is left unchanged
+    public void merge(KllSketch other) {
+        while (levels.length < other.levels.length) {
+            addLevel();
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress();
+    }
+
+    private void append(int level, double value) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        levels[levels.length - 1] = new double[8];
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        capacity = 0;
+        for (int h = 0; h < levels.length; h++) {
+            capacity += levelCapacity(h);
+        }
+    }
+
+    private void compress() {
+        while (retained > capacity) {
+            int h = 0;
+            while (sizes[h] < levelCapacity(h)) {
+                h++;
+            }
+            if (h + 1 == levels.length) {
+                addLevel();
+            }
+            double[] items = levels[h];
+            int n = sizes[h];
+            Arrays.sort(items, 0, n);
+            int pairs = n & ~1;                      // an odd one out stays on this level
+            for (int i = random.nextInt(2); i < pairs; i += 2) {
+                append(h + 1, items[i]);
+            }
+            retained -= pairs;
+            if (n > pairs) {
+                items[0] = items[n - 1];
+            }
+            sizes[h] = n - pairs;
+        }
+    }
+
+    // Retained items sorted by value, with their weights
+    private double[][] sortedView() {
+        double[] values = new double[retained];
+        double[] weights = new double[retained];
+        int n = 0;
+        for (int h = 0; h < levels.length; h++) {
+            double[] level = Arrays.copyOf(levels[h], sizes[h]);
+            Arrays.sort(level);
+            // merge the sorted level into the sorted prefix, from the back
+            int i = n - 1;
+            int j = level.length - 1;
+            for (int out = n + level.length - 1; j >= 0; out--) {
+                if (i >= 0 && values[i] > level[j]) {
+                    values[out] = values[i];
+                    weights[out] = weights[i--];
+                } else {
+                    values[out] = level[j--];
+                    weights[out] = 1L << h;
+                }
+            }
+            n += level.length;
+        }
+        return new double[][] {values, weights};
+    }
+
+    // Approximate value at quantile q (0-1); NaN if empty
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        double[][] view = sortedView();
+        double target = q * count;
+        double seen = 0;
+        for (int i = 0; i < view[0].length; i++) {
+            seen += view[1][i];
+            if (seen >= target) {
+                return view[0][i];
+            }
+        }
+        return max;
+    }
+
+    // Approximate fraction of values strictly below x
+    public double fractionBelow(double x) {
+        if (count == 0) {
+            return 0;
+        }
+        double below = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                if (levels[h][i] < x) {
+                    below += 1L << h;
+                }
+            }
+        }
+        return below / count;
+    }
+}
+
+// Class representing the percentage and GPA sketches of one group of students
+class CohortSketches {
+    static final int K = 200;
+
+    final KllSketch percentage = new KllSketch(K);
+    final KllSketch gpa = new KllSketch(K);
+
+    void add(Student student) {
+        percentage.update(student.getPercentage());
+        gpa.update(student.getGPA());
+    }
+
+    void merge(CohortSketches other) {
+        percentage.merge(other.percentage);
+        gpa.merge(other.gpa);
+    }
+}
+
+// Class representing the best result of a group: a binary max-heap by GPA (ties
+// by roll number) with lazy deletion. A re-graded student is pushed again and
+// their older entries go stale; stale entries are popped whenever they reach the
+// top, so the top is always current, and the heap is rebuilt from its live
+// entries when stale ones make up more than half of it.
+class TopStudentHeap {
+    private double[] gpas = new double[16];
+    private Student[] students = new Student[16];
+    private int[] versions = new int[16];   // marks version of the student when pushed
+    private int size;
+
+    // Best student; null if empty
+    public Student top() {
+        return size == 0 ? null : students[0];
+    }
+
+    // Record a student's new result; live is the number of students in the group with marks
+    public void push(Student student, int live) {
+        if (size == gpas.length) {
+            gpas = Arrays.copyOf(gpas, size * 2);
+            students = Arrays.copyOf(students, size * 2);
+            versions = Arrays.copyOf(versions, size * 2);
+        }
+        set(size, student.getGPA(), student, student.marksVersion());
+        siftUp(size++);
+        while (size > 0 && isStale(0)) {
+            set(0, gpas[size - 1], students[size - 1], versions[size - 1]);
+            students[--size] = null;
+            siftDown(0);
+        }
+        if (size > 2 * live + 16) {
+            compact();
+        }
+    }
+
+    private boolean isStale(int i) {
+        return versions[i] != students[i].marksVersion();
+    }
+
+    private void set(int i, double gpa, Student student, int version) {
+        gpas[i] = gpa;
+        students[i] = student;
+        versions[i] = version;
+    }
+
+    private boolean better(int i, int j) {
+        return gpas[i] > gpas[j]
+                || (gpas[i] == gpas[j] && students[i].getRollNo().compareTo(students[j].getRollNo()) < 0);
+    }
+
+    private void swap(int i, int j) {
+        double gpa = gpas[i];
+        Student student = students[i];
+        int version = versions[i];
+        set(i, gpas[j], students[j], versions[j]);
+        set(j, gpa, student, version);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0 && better(i, (i - 1) / 2)) {
+            swap(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int best = i;
+            int left = 2 * i + 1;
+            if (left < size && better(left, best)) {
+                best = left;
+            }
+            if (left + 1 < size && better(left + 1, best)) {
+                best = left + 1;
+            }
+            if (best == i) {
+                return;
+            }
+            swap(i, best);
+            i = best;
+        }
+    }
+
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isStale(i)) {
+                set(kept++, gpas[i], students[i], versions[i]);
+            }
+        }
+        Arrays.fill(students, kept, size, null);
+        size = kept;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+}
+
+// Class representing one cell of the rollup cube: running totals for a group of students
+class RollupCell {
+    int students;
+    int graded;         // students with marks
+    int passed;         // graded students at or above the pass percentage
+    double gpaSum;      // over graded students
+    final TopStudentHeap best = new TopStudentHeap();
+
+    public double averageGpa() {
+        return graded == 0 ? 0 : gpaSum / graded;
+    }
+
+    public double passRate() {
+        return graded == 0 ? 0 : (double) passed / graded;
+    }
+
+    // Best student by GPA; null if nobody in the group has marks
+    public Student topStudent() {
+        return best.top();
+    }
+
+    void addResult(Student student) {
+        graded++;
+        gpaSum += student.getGPA();
+        if (RollupCube.passed(student.getPercentage())) {
+            passed++;
+        }
+        best.push(student, graded);
+    }
+
+    // Take back a superseded result; its heap entry is already stale
+    void removeResult(double gpa, double percentage) {
+        graded--;
+        gpaSum -= gpa;
+        if (RollupCube.passed(percentage)) {
+            passed--;
+        }
+    }
+}
+
+// Class representing pre-aggregated results per department, per semester and per
+// department and semester, kept up to date as students are added and graded, so a
+// dashboard reads any cell with one hash lookup whatever the roster size
+class RollupCube {
+    static final double PASS_PERCENTAGE = 40;
+
+    private final RollupCell all = new RollupCell();
+    private final HashMap<String, RollupCell> byDepartment = new HashMap<>();
+    private final HashMap<Integer, RollupCell> bySemester = new HashMap<>();
+    private final HashMap<String, HashMap<Integer, RollupCell>> byDepartmentSemester = new HashMap<>();
+
+    static boolean passed(double percentage) {
+        return percentage >= PASS_PERCENTAGE;
+    }
+
+    // The four cells a student counts towards, creating them as needed
+    private RollupCell[] cellsOf(Student student) {
+        String department = student.getDepartment();
+        int semester = student.getSemester();
+        return new RollupCell[] {
+            all,
+            byDepartment.computeIfAbsent(department, d -> new RollupCell()),
+            bySemester.computeIfAbsent(semester, s -> new RollupCell()),
+            byDepartmentSemester.computeIfAbsent(department, d -> new HashMap<>())
+                    .computeIfAbsent(semester, s -> new RollupCell())
+        };
+    }
+
+    public void studentAdded(Student student) {
+        for (RollupCell cell : cellsOf(student)) {
+            cell.students++;
+            if (student.hasMarks()) {
+                cell.addResult(student);
+            }
+        }
+    }
+
+    // The student's marks were recorded; the old values apply if they already had marks
+    public void resultChanged(Student student, boolean regraded, double oldGpa, double oldPercentage) {
+        for (RollupCell cell : cellsOf(student)) {
+            if (regraded) {
+                cell.removeResult(oldGpa, oldPercentage);
+            }
+            cell.addResult(student);
+        }
+    }
+
+    public RollupCell total() {
+        return all;
+    }
+
+    // Null if nobody is registered in that group
+    public RollupCell department(String department) {
+        return byDepartment.get(department);
+    }
+
+    public RollupCell semester(int semester) {
+        return bySemester.get(semester);
+    }
+
+    public RollupCell cell(String department, int semester) {
+        HashMap<Integer, RollupCell> semesters = byDepartmentSemester.get(department);
+        return semesters == null ? null : semesters.get(semester);
+    }
+
+    public List<String> departments() {
+        List<String> departments = new ArrayList<>(byDepartment.keySet());
+        departments.sort(null);
+        return departments;
+    }
+
+    public List<Integer> semesters() {
+        List<Integer> semesters = new ArrayList<>(bySemester.keySet());
+        semesters.sort(null);
+        return semesters;
+    }
+}
+
+// Class representing one parsed line of a marks CSV; error is set if it is invalid
+class MarksRow {
+    static final int BATCH = 16_384;   // lines validated together
+
+    String rollNo;
+    String name;        // only on lines that can add the student
+    String department;
+    int semester;
+    final double[] marks = new double[Student.SUBJECTS];
+    String error;
+
+    static MarksRow parse(String line) {
+        MarksRow row = new MarksRow();
+        List<String> fields = split(line);
+        if (fields == null) {
+            row.error = "unterminated quoted field";
+            return row;
+        }
+        int n = fields.size();
+        if (n != 1 + Student.SUBJECTS && n != 4 + Student.SUBJECTS) {
+            row.error = "expected " + (1 + Student.SUBJECTS) + " or " + (4 + Student.SUBJECTS) + " fields, found " + n;
+            return row;
+        }
+        row.rollNo = fields.get(0);
+        if (row.rollNo.isEmpty()) {
+            row.error = "empty roll number";
+            return row;
+        }
+        int first = 1;
+        if (n == 4 + Student.SUBJECTS) {
+            row.name = fields.get(1);
+            row.department = fields.get(2);
+            if (row.name.isEmpty()) {
+                row.error = "empty name";
+                return row;
+            }
+            try {
+                row.semester = Integer.parseInt(fields.get(3));
+            } catch (NumberFormatException e) {
+                row.semester = 0;
+            }
+            if (row.semester <= 0) {
+                row.error = "semester is not a positive whole number: '" + fields.get(3) + "'";
+                return row;
+            }
+            first = 4;
+        }
+        for (int s = 0; s < Student.SUBJECTS; s++) {
+            String field = fields.get(first + s);
+            double mark;
+            try {
+                mark = Double.parseDouble(field);
+            } catch (NumberFormatException e) {
+                row.error = "marks for Subject " + (s + 1) + " are not a number: '" + field + "'";
+                return row;
+            }
+            if (!(mark >= 0 && mark <= 100)) {
+                row.error = "marks for Subject " + (s + 1) + " are not between 0 and 100: " + field;
+                return row;
+            }
+            row.marks[s] = mark;
+        }
+        return row;
+    }
+
+    // Comma-separated fields, trimmed; double quotes may enclose a field and "" escapes a quote.
+    // Null if a quote is left open.
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(4 + Student.SUBJECTS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return quoted ? null : fields;
+    }
+}
+
+// Class representing the outcome of StudentManagement.importMarks
+class ImportReport {
+    static final int MAX_REASONS = 1_000;   // rejected rows listed individually
+
+    int rows;
+    int imported;
+    int added;
+    int rejected;
+    final List<String> reasons = new ArrayList<>();
+
+    void reject(int line, String reason) {
+        rejected++;
+        if (reasons.size() < MAX_REASONS) {
+            reasons.add("line " + line + ": " + reason);
+        }
+    }
+}
+
+// Class representing the on-disk copy of all students, in two files:
+//   students.dat  header + one fixed-width row per student, memory-mapped
+//   strings.dat   string heap: roll numbers, names and departments, each as
+//                 int length + UTF-8, referenced from rows by offset
+// Opening maps both files and reads rows and strings in place; nothing is parsed. Marks are
+// updated with positioned writes into the mapped row. The row count in the
+// header is written last, so if the process crashes a torn final row (one whose
+// strings were still buffered) is dropped on the next start. That ordering only
+// holds within the page cache: after an OS crash or power loss the kernel may
+// have flushed the header before the row or the heap, so only what the last
+// force() (also run by close()) wrote is guaranteed.
+class StudentStore implements Closeable {
+    private static final int MAGIC = 0x53525331;        // "SRS1"
+    private static final int HEADER_BYTES = 16;         // magic, row bytes, row count, reserved
+    private static final int COUNT = 8;
+    private static final int ROW_BYTES = 72;
+    private static final int GRADED = 1;
+    private static final int MAX_ROWS = (Integer.MAX_VALUE - HEADER_BYTES) / ROW_BYTES;   // one mapping
+
+    // Row layout: offsets within a row
+    private static final int ROLL_NO = 0;               // long: string heap offset
+    private static final int NAME = 8;                  // long
+    private static final int DEPARTMENT = 16;           // long
+    private static final int SEMESTER = 24;             // int
+    private static final int FLAGS = 28;                // int
+    private static final int MARKS = 32;                // 5 doubles
+
+    private final FileChannel rowFile;
+    private final FileChannel heapFile;
+    private MappedByteBuffer rows;
+    private MappedByteBuffer savedStrings;              // the heap as it was when opened, for read()
+    private int capacity;                               // rows the current mapping holds
+    private int count;
+    private long heapEnd;
+    private final ByteBuffer pendingStrings = ByteBuffer.allocate(1 << 16);   // heap bytes not yet written
+    private final HashMap<String, Long> departments = new HashMap<>();        // interned on the heap
+
+    private StudentStore(FileChannel rowFile, FileChannel heapFile) {
+        this.rowFile = rowFile;
+        this.heapFile = heapFile;
+    }
+
+    public static StudentStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        FileChannel rowFile = FileChannel.open(dir.resolve("students.dat"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel heapFile = null;
+        try {
+            heapFile = FileChannel.open(dir.resolve("strings.dat"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            StudentStore store = new StudentStore(rowFile, heapFile);
+            store.load();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            rowFile.close();
+            if (heapFile != null) {
+                heapFile.close();
+            }
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        heapEnd = heapFile.size();
+        if (heapEnd > Integer.MAX_VALUE) {
+            throw new IOException("strings.dat is larger than 2 GB");
+        }
+        savedStrings = heapFile.map(FileChannel.MapMode.READ_ONLY, 0, heapEnd);
+        boolean fresh = rowFile.size() == 0;
+        int saved = fresh ? 0 : readHeader();
+        capacity = (int) Math.min(MAX_ROWS, Math.max(1024, Integer.highestOneBit(Math.max(1, saved)) * 2L));
+        rows = rowFile.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * ROW_BYTES);
+        if (fresh) {
+            rows.putInt(0, MAGIC);
+            rows.putInt(4, ROW_BYTES);
+        }
+        count = saved;
+    }
+
+    private int readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        rowFile.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != ROW_BYTES) {
+            throw new IOException("students.dat is not a student store");
+        }
+        int saved = header.getInt(COUNT);
+        if (saved < 0 || HEADER_BYTES + (long) saved * ROW_BYTES > rowFile.size()) {
+            throw new IOException("students.dat is shorter than its row count");
+        }
+        return saved;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private int offset(int row) {
+        return HEADER_BYTES + row * ROW_BYTES;
+    }
+
+    // Rebuild a saved student; marks are recorded if it has any. Null if the row
+    // refers past the end of the string heap (its strings were lost in a crash).
+    // Only rows that existed when the store was opened can be read.
+    public Student read(int row) {
+        int at = offset(row);
+        String rollNo = string(rows.getLong(at + ROLL_NO));
+        String name = string(rows.getLong(at + NAME));
+        String department = string(rows.getLong(at + DEPARTMENT));
+        if (rollNo == null || name == null || department == null) {
+            return null;
+        }
+        Student student = new Student(name, rollNo, department, rows.getInt(at + SEMESTER));
+        if ((rows.getInt(at + FLAGS) & GRADED) != 0) {
+            double[] marks = new double[Student.SUBJECTS];
+            for (int s = 0; s < Student.SUBJECTS; s++) {
+                marks[s] = rows.getDouble(at + MARKS + 8 * s);
+            }
+            student.recordMarks(marks);
+        }
+        student.setRecord(row);
+        departments.putIfAbsent(department, rows.getLong(at + DEPARTMENT));
+        return student;
+    }
+
+    // Drop rows from row onwards, after read() found them unusable
+    public void truncate(int row) {
+        count = Math.min(count, row);
+        rows.putInt(COUNT, count);
+    }
+
+    private String string(long at) {
+        long size = savedStrings.capacity();
+        if (at < 0 || at + 4 > size) {
+            return null;
+        }
+        int length = savedStrings.getInt((int) at);
+        if (length < 0 || at + 4 + length > size) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        savedStrings.get((int) at + 4, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
     }
 
-    // Method to enter marks
-    public void enterMarks(Scanner sc) {
-        totalMarks = 0;
-        try {
-            for (int i = 0; i < 5; i++) {
-                System.out.print("Enter marks for Subject " + (i + 1) + " (out of 100): ");
-                marks[i] = sc.nextDouble();
-                if (marks[i] < 0 || marks[i] > 100) {
-                    System.out.println("Invalid marks! Enter between 0 and 100.");
-                    i--; // repeat this subject input
-                    continue;
-                }
-                totalMarks += marks[i];
+    // Append a string to the heap; returns its offset
+    private long intern(String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (pendingStrings.remaining() < 4 + utf8.length) {
+            sync();
+        }
+        long at = heapEnd;
+        if (4 + utf8.length > pendingStrings.capacity()) {
+            ByteBuffer big = ByteBuffer.allocate(4 + utf8.length);
+            big.putInt(utf8.length).put(utf8).flip();
+            while (big.hasRemaining()) {
+                heapFile.write(big, heapEnd + big.position());
             }
-            calculatePercentageAndGPA();
-        } catch (InputMismatchException e) {
-            System.out.println("Invalid input! Marks should be numeric.");
-            sc.nextLine(); // clear buffer
-            enterMarks(sc); // retry
+        } else {
+            pendingStrings.putInt(utf8.length).put(utf8);
         }
+        heapEnd += 4 + utf8.length;
+        return at;
     }
 
-    // Calculate percentage and GPA
-    private void calculatePercentageAndGPA() {
-        percentage = (totalMarks / 500) * 100;
-        gpa = percentage / 20; // simple formula: 100% = 5.0 GPA
-        if (gpa > 4.0) gpa = 4.0; // cap GPA at 4.0
+    // Save a new student; returns its row
+    public int append(Student student) throws IOException {
+        if (count == capacity) {
+            if (capacity == MAX_ROWS) {
+                throw new IOException("student store is full (" + MAX_ROWS + " students)");
+            }
+            capacity = (int) Math.min(MAX_ROWS, capacity * 2L);
+            rows = rowFile.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * ROW_BYTES);
+        }
+        Long department = departments.get(student.getDepartment());
+        if (department == null) {
+            department = intern(student.getDepartment());
+            departments.put(student.getDepartment(), department);
+        }
+        int row = count;
+        int at = offset(row);
+        rows.putLong(at + ROLL_NO, intern(student.getRollNo()));
+        rows.putLong(at + NAME, intern(student.getName()));
+        rows.putLong(at + DEPARTMENT, department);
+        rows.putInt(at + SEMESTER, student.getSemester());
+        writeMarks(row, student);
+        rows.putInt(COUNT, ++count);
+        return row;
     }
 
-    // Display individual student result
-    public void displayResult() {
-        System.out.println("========================================");
-        System.out.println("Student Name: " + name);
-        System.out.println("Roll No: " + rollNo);
-        System.out.println("Department: " + department);
-        System.out.println("Semester: " + semester);
-        System.out.println("Subject-wise Marks:");
-        for (int i = 0; i < marks.length; i++) {
-            System.out.println("  Subject " + (i + 1) + ": " + marks[i]);
+    // Overwrite a student's marks in place
+    public void writeMarks(int row, Student student) {
+        int at = offset(row);
+        for (int s = 0; s < Student.SUBJECTS; s++) {
+            rows.putDouble(at + MARKS + 8 * s, student.getMark(s));
         }
-        System.out.println("Total Marks: " + totalMarks + " / 500");
-        System.out.println("Percentage: " + percentage + "%");
-        System.out.println("GPA: " + gpa);
-        System.out.println("========================================");
+        rows.putInt(at + FLAGS, student.hasMarks() ? GRADED : 0);
     }
 
-    public double getGPA() {
-        return gpa;
+    // Hand buffered strings to the OS, so a crash of this process loses nothing
+    public void sync() throws IOException {
+        pendingStrings.flip();
+        long at = heapEnd - pendingStrings.remaining();
+        while (pendingStrings.hasRemaining()) {
+            heapFile.write(pendingStrings, at + pendingStrings.position());
+        }
+        pendingStrings.clear();
     }
 
-    public String getName() {
-        return name;
+    // Also force both files to disk
+    public void force() throws IOException {
+        sync();
+        heapFile.force(false);
+        rows.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            force();
+        } finally {
+            rowFile.close();
+            heapFile.close();
+        }
     }
 }
 
 class StudentManagement {
-     ArrayList<Student> students = new ArrayList<>();
+    private final ArrayList<Student> students = new ArrayList<>();
+    private final HashMap<String, Student> studentsByRollNo = new HashMap<>();
+    private final GpaLeaderboard leaderboard = new GpaLeaderboard();
+    private final MarksColumns marks = new MarksColumns();
+    // department -> semester -> sketches of the results entered for that group
+    private final HashMap<String, HashMap<Integer, CohortSketches>> sketches = new HashMap<>();
+    private long sketchedResults;
+    private long supersededResults;   // re-graded results still in the sketches
+    private final RollupCube cube = new RollupCube();
+    private StudentStore store;   // where students are saved, if anywhere
 
-    // Add student
-    public void addStudent(Student student) {
-        students.add(student);
+    // Load every student saved in the store, then save all later changes there
+    public void attach(StudentStore store) {
+        for (int row = 0; row < store.size(); row++) {
+            Student student = store.read(row);
+            if (student == null) {
+                store.truncate(row);   // torn tail from a crash
+                break;
+            }
+            register(student);
+        }
+        this.store = store;
+    }
+
+    // Add student; roll numbers must be unique
+    public boolean addStudent(Student student) {
+        boolean added;
+        try {
+            added = register(student);
+        } catch (UncheckedIOException e) {
+            System.out.println("Could not save student: " + e.getMessage());
+            return false;
+        }
+        if (!added) {
+            System.out.println("Student with Roll No " + student.getRollNo() + " already exists!");
+            return false;
+        }
         System.out.println("Student added successfully!");
+        return true;
     }
 
-    // Display result for a student by roll number
-    public void displayStudentResult(String rollNo) {
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // Just check rollNo
-            }
+    // Write buffered strings of newly added students to the store
+    public void sync() throws IOException {
+        if (store != null) {
+            store.sync();
         }
-        boolean found = false;
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // placeholder to avoid skipping nulls
-            }
+    }
+
+    // Saved to the store before it is indexed, so a failed save leaves no trace of the student
+    private boolean register(Student student) {
+        if (studentsByRollNo.containsKey(student.getRollNo())) {
+            return false;
         }
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // actual match check in loop below
+        if (store != null && student.record() < 0) {
+            try {
+                student.setRecord(store.append(student));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
-        for (Student student : students) {
-            if (student != null && student.getName() != null) {
-                // placeholder
-            }
+        studentsByRollNo.put(student.getRollNo(), student);
+        students.add(student);
+        student.useStore(marks);
+        leaderboard.add(student, student.getGPA());
+        cube.studentAdded(student);
+        if (student.hasMarks()) {
+            sketch(student);
         }
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // placeholder
-            }
+        return true;
+    }
+
+    private void sketch(Student student) {
+        sketches.computeIfAbsent(student.getDepartment(), d -> new HashMap<>())
+                .computeIfAbsent(student.getSemester(), s -> new CohortSketches())
+                .add(student);
+        sketchedResults++;
+    }
+
+    // Marks were recorded for a registered student
+    private void marksRecorded(Student student, boolean regraded, double oldGpa, double oldPercentage) {
+        if (store != null && student.record() >= 0) {
+            store.writeMarks(student.record(), student);
         }
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // placeholder
-            }
+        gpaChanged(student, oldGpa);
+        cube.resultChanged(student, regraded, oldGpa, oldPercentage);
+        if (regraded) {
+            supersededResults++;   // sketches cannot forget; the old result stays until the next rebuild
         }
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // placeholder
+        sketch(student);
+    }
+
+    // Merged sketches for a department (null for all) and semester (0 for all).
+    // Sketches are rebuilt from the current results first once more than 1% of
+    // what they hold was superseded by re-grading.
+    public CohortSketches cohortSketches(String department, int semester) {
+        if (supersededResults * 100 > sketchedResults) {
+            sketches.clear();
+            sketchedResults = 0;
+            supersededResults = 0;
+            for (Student student : students) {
+                if (student.hasMarks()) {
+                    sketch(student);
+                }
             }
         }
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // placeholder
+        CohortSketches merged = new CohortSketches();
+        for (Map.Entry<String, HashMap<Integer, CohortSketches>> byDepartment : sketches.entrySet()) {
+            if (department != null && !department.equalsIgnoreCase(byDepartment.getKey())) {
+                continue;
+            }
+            for (Map.Entry<Integer, CohortSketches> bySemester : byDepartment.getValue().entrySet()) {
+                if (semester == 0 || semester == bySemester.getKey()) {
+                    merged.merge(bySemester.getValue());
+                }
             }
         }
-        for (Student student : students) {
-            if (student != null && student.getName() != null && student.getName().length() > 0) {
-                // placeholder
+        return merged;
+    }
+
+    // Find a student by roll number; null if not found
+    public Student findStudent(String rollNo) {
+        return studentsByRollNo.get(rollNo);
+    }
+
+    // Enter marks for a student and move them on the leaderboard
+    public void enterMarks(Student student, Scanner sc) {
+        double oldGpa = student.getGPA();
+        double oldPercentage = student.getPercentage();
+        boolean regraded = student.hasMarks();
+        student.enterMarks(sc);
+        marksRecorded(student, regraded, oldGpa, oldPercentage);
+    }
+
+    // Record marks (each 0-100) for a registered student without prompting
+    public void recordMarks(Student student, double[] marks) {
+        double oldGpa = student.getGPA();
+        double oldPercentage = student.getPercentage();
+        boolean regraded = student.hasMarks();
+        student.recordMarks(marks);
+        marksRecorded(student, regraded, oldGpa, oldPercentage);
+    }
+
+    private void gpaChanged(Student student, double oldGpa) {
+        if (student.getGPA() != oldGpa) {
+            leaderboard.remove(student, oldGpa);
+            leaderboard.add(student, student.getGPA());
+        }
+    }
+
+    // Bulk import from a marks CSV, one student per line:
+    //   rollNo,m1,m2,m3,m4,m5                              marks for an existing student
+    //   rollNo,name,department,semester,m1,m2,m3,m4,m5     adds the student first if new
+    // An optional header line starting with "rollNo" is skipped. The file is read
+    // in batches; each batch is parsed and validated in parallel, then applied in
+    // file order. Bad rows are reported and skipped.
+    public ImportReport importMarks(Path file) throws IOException {
+        ImportReport report = new ImportReport();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> batch = new ArrayList<>(MarksRow.BATCH);
+            int firstLine = 1;
+            String line;
+            while ((line = in.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == MarksRow.BATCH) {
+                    importBatch(batch, firstLine, report);
+                    firstLine += batch.size();
+                    batch.clear();
+                }
             }
+            importBatch(batch, firstLine, report);
         }
-        // actual check
-        for (Student student : students) {
-            if (student != null && rollNo.equals(student.getName())) {
-                student.displayResult();
-                found = true;
-                break;
+        sync();
+        return report;
+    }
+
+    private void importBatch(List<String> lines, int firstLine, ImportReport report) {
+        MarksRow[] rows = new MarksRow[lines.size()];
+        IntStream.range(0, rows.length).parallel().forEach(i -> {
+            String line = lines.get(i);
+            boolean header = firstLine + i == 1 && line.regionMatches(true, 0, "rollNo", 0, 6);
+            rows[i] = header || line.trim().isEmpty() ? null : MarksRow.parse(line);
+        });
+        for (int i = 0; i < rows.length; i++) {
+            MarksRow row = rows[i];
+            if (row == null) {
+                continue;
+            }
+            report.rows++;
+            if (row.error != null) {
+                report.reject(firstLine + i, row.error);
+                continue;
+            }
+            Student student = studentsByRollNo.get(row.rollNo);
+            if (student == null) {
+                if (row.name == null) {
+                    report.reject(firstLine + i, "unknown roll number " + row.rollNo
+                            + " (give name, department and semester to add the student)");
+                    continue;
+                }
+                student = new Student(row.name, row.rollNo, row.department, row.semester);
+                student.recordMarks(row.marks);   // before registering, so it is filed on the leaderboard once
+                try {
+                    register(student);
+                } catch (UncheckedIOException e) {
+                    report.reject(firstLine + i, "could not save student: " + e.getMessage());
+                    continue;
+                }
+                report.added++;
+                report.imported++;
+                continue;
             }
+            recordMarks(student, row.marks);
+            report.imported++;
         }
-        if (!found) {
+    }
+
+    // 1-based GPA rank of a student; 0 if not registered
+    public int rankOf(Student student) {
+        return leaderboard.rank(student, student.getGPA());
+    }
+
+    public int studentCount() {
+        return students.size();
+    }
+
+    // Display result for a student by roll number
+    public void displayStudentResult(String rollNo) {
+        Student student = findStudent(rollNo);
+        if (student != null) {
+            student.displayResult();
+        } else {
             System.out.println("Student with Roll No " + rollNo + " not found!");
         }
     }
@@ -154,20 +1456,154 @@ class StudentManagement {
             return;
         }
 
-        students.sort(Comparator.comparingDouble(Student::getGPA).reversed());
-
+        List<Student> top = leaderboard.top(3);
         System.out.println("Top 3 Students based on GPA:");
-        for (int i = 0; i < Math.min(3, students.size()); i++) {
-            Student s = students.get(i);
+        for (int i = 0; i < top.size(); i++) {
+            Student s = top.get(i);
             System.out.println((i + 1) + ". " + s.getName() + " - GPA: " + s.getGPA());
         }
     }
+
+    // Display per-subject statistics over all students with marks
+    public void displaySubjectStatistics() {
+        if (marks.size() == 0) {
+            System.out.println("No marks entered yet.");
+            return;
+        }
+        System.out.println("Subject Statistics (" + marks.size() + " students with marks):");
+        for (int subject = 0; subject < Student.SUBJECTS; subject++) {
+            SubjectStats stats = marks.subjectStats(subject, true);
+            System.out.printf("  Subject %d: mean %.2f, std dev %.2f, min %.1f, max %.1f%n", subject + 1,
+                    stats.mean(), stats.standardDeviation(), stats.min, stats.max);
+            StringBuilder histogram = new StringBuilder("    ");
+            for (int b = 0; b < SubjectStats.BUCKETS; b++) {
+                histogram.append(b * 10).append(b == SubjectStats.BUCKETS - 1 ? "-100: " : "-" + (b * 10 + 9) + ": ")
+                        .append(stats.histogram[b]).append(b == SubjectStats.BUCKETS - 1 ? "" : "  ");
+            }
+            System.out.println(histogram);
+        }
+    }
+
+    // Display approximate percentiles of percentage and GPA for a group of students
+    public void displayCohortPercentiles(String department, int semester) {
+        CohortSketches cohort = cohortSketches(department, semester);
+        if (cohort.gpa.count() == 0) {
+            System.out.println("No results for that group.");
+            return;
+        }
+        double[] quantiles = {0.10, 0.25, 0.50, 0.75, 0.90};
+        System.out.println(cohort.gpa.count() + " result(s), approximate:");
+        System.out.println("              p10      p25   median      p75      p90");
+        StringBuilder percentage = new StringBuilder("Percentage");
+        StringBuilder gpa = new StringBuilder("GPA       ");
+        for (double q : quantiles) {
+            percentage.append(String.format("%9.2f", cohort.percentage.quantile(q)));
+            gpa.append(String.format("%9.2f", cohort.gpa.quantile(q)));
+        }
+        System.out.println(percentage);
+        System.out.println(gpa);
+        System.out.printf("GPA 3.0 or above: %.1f%%, 2.0 or above: %.1f%%, 1.0 or above: %.1f%%%n",
+                100 * (1 - cohort.gpa.fractionBelow(3.0)), 100 * (1 - cohort.gpa.fractionBelow(2.0)),
+                100 * (1 - cohort.gpa.fractionBelow(1.0)));
+    }
+
+    public RollupCube rollups() {
+        return cube;
+    }
+
+    // Display count, average GPA, pass rate and top student for every department
+    // and semester combination, then per department, per semester and overall
+    public void displayRollups() {
+        if (students.isEmpty()) {
+            System.out.println("No students available.");
+            return;
+        }
+        System.out.printf("%-16s %8s %8s %8s %9s  %s%n", "Group", "Students", "Graded", "Avg GPA", "Pass rate", "Top student");
+        for (String department : cube.departments()) {
+            for (int semester : cube.semesters()) {
+                RollupCell cell = cube.cell(department, semester);
+                if (cell != null) {
+                    printRollup(department + " / Sem " + semester, cell);
+                }
+            }
+            printRollup(department + " (all)", cube.department(department));
+        }
+        for (int semester : cube.semesters()) {
+            printRollup("Semester " + semester, cube.semester(semester));
+        }
+        printRollup("All students", cube.total());
+    }
+
+    private static void printRollup(String group, RollupCell cell) {
+        Student top = cell.topStudent();
+        System.out.printf("%-16s %8d %8d %8.2f %8.1f%%  %s%n", group, cell.students, cell.graded, cell.averageGpa(),
+                100 * cell.passRate(), top == null ? "-" : top.getName() + " (" + top.getGPA() + ")");
+    }
+
+    // Display a student's rank and how many students they are ahead of
+    public void displayRank(String rollNo) {
+        Student student = findStudent(rollNo);
+        if (student == null) {
+            System.out.println("Student with Roll No " + rollNo + " not found!");
+            return;
+        }
+        int rank = rankOf(student);
+        int n = students.size();
+        System.out.printf("%s is ranked %d of %d (GPA %.2f), ahead of %.1f%% of students.%n",
+                student.getName(), rank, n, student.getGPA(), 100.0 * (n - rank) / n);
+    }
+
+    // Display the student at a GPA percentile
+    public void displayPercentile(double p) {
+        Student student = leaderboard.atPercentile(p);
+        if (student == null) {
+            System.out.println("No students available.");
+            return;
+        }
+        System.out.printf("%.1fth percentile: %s (Roll No %s) - GPA: %.2f%n",
+                p, student.getName(), student.getRollNo(), student.getGPA());
+    }
 }
 
 public class StudentResultSystem {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("bench")) {
+            benchmark(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("sketch")) {
+            sketchBenchmark(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("rollup")) {
+            rollupBenchmark(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("store")) {
+            storeBenchmark(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("import")) {
+            importBenchmark(args);
+            return;
+        }
         Scanner sc = new Scanner(System.in);
         StudentManagement management = new StudentManagement();
+        StudentStore store = null;
+        try {
+            store = StudentStore.open(Paths.get("studentdata"));
+            management.attach(store);
+            if (management.studentCount() > 0) {
+                System.out.println("Loaded " + management.studentCount() + " student(s).");
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Could not open saved students, changes will not be saved: " + e.getMessage());
+            if (store != null) {
+                store.close();
+                store = null;
+            }
+            management = new StudentManagement();
+        }
 
         while (true) {
             System.out.println("\n==== Student Result Processing System ====");
@@ -175,7 +1611,13 @@ public class StudentResultSystem {
             System.out.println("2. Enter Marks");
             System.out.println("3. Display Student Result");
             System.out.println("4. Display Top 3 Students");
-            System.out.println("5. Exit");
+            System.out.println("5. Display Student Rank");
+            System.out.println("6. Display GPA Percentile");
+            System.out.println("7. Display Subject Statistics");
+            System.out.println("8. Import Marks from CSV");
+            System.out.println("9. Display Cohort Percentiles");
+            System.out.println("10. Display Department/Semester Summary");
+            System.out.println("11. Exit");
             System.out.print("Choose an option: ");
 
             int choice;
@@ -200,22 +1642,23 @@ public class StudentResultSystem {
                     int sem = sc.nextInt();
 
                     Student student = new Student(name, rollNo, dept, sem);
-                    management.addStudent(student);
+                    if (management.addStudent(student)) {
+                        try {
+                            management.sync();
+                        } catch (IOException e) {
+                            System.out.println("Could not save student: " + e.getMessage());
+                        }
+                    }
                     break;
 
                 case 2:
                     sc.nextLine();
                     System.out.print("Enter Roll No to Enter Marks: ");
                     String roll = sc.nextLine();
-                    boolean found = false;
-                    for (Student s : management.students) {
-                        if (roll.equals(s.getName())) {
-                            s.enterMarks(sc);
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
+                    Student s = management.findStudent(roll);
+                    if (s != null) {
+                        management.enterMarks(s, sc);
+                    } else {
                         System.out.println("Student not found!");
                     }
                     break;
@@ -232,13 +1675,441 @@ public class StudentResultSystem {
                     break;
 
                 case 5:
+                    sc.nextLine();
+                    System.out.print("Enter Roll No: ");
+                    management.displayRank(sc.nextLine());
+                    break;
+
+                case 6:
+                    System.out.print("Enter Percentile (0-100): ");
+                    double p;
+                    try {
+                        p = sc.nextDouble();
+                    } catch (InputMismatchException e) {
+                        System.out.println("Invalid input! Percentile should be numeric.");
+                        sc.nextLine();
+                        break;
+                    }
+                    if (p < 0 || p > 100) {
+                        System.out.println("Percentile must be between 0 and 100.");
+                    } else {
+                        management.displayPercentile(p);
+                    }
+                    break;
+
+                case 7:
+                    management.displaySubjectStatistics();
+                    break;
+
+                case 8:
+                    sc.nextLine();
+                    System.out.print("Enter CSV File Path: ");
+                    String path = sc.nextLine().trim();
+                    try {
+                        printImportReport(management.importMarks(Paths.get(path)), 20);
+                    } catch (NoSuchFileException e) {
+                        System.out.println("File not found: " + path);
+                    } catch (IOException | InvalidPathException e) {
+                        System.out.println("Could not read " + path + ": " + e.getMessage());
+                    }
+                    break;
+
+                case 9:
+                    sc.nextLine();
+                    System.out.print("Enter Department (blank for all): ");
+                    String department = sc.nextLine().trim();
+                    System.out.print("Enter Semester (0 for all): ");
+                    int semester;
+                    try {
+                        semester = sc.nextInt();
+                    } catch (InputMismatchException e) {
+                        System.out.println("Invalid input! Semester should be a number.");
+                        sc.nextLine();
+                        break;
+                    }
+                    management.displayCohortPercentiles(department.isEmpty() ? null : department, semester);
+                    break;
+
+                case 10:
+                    management.displayRollups();
+                    break;
+
+                case 11:
                     System.out.println("Exiting the system. Goodbye!");
+                    if (store != null) {
+                        store.close();
+                    }
                     sc.close();
                     return;
 
                 default:
-                    System.out.println("Invalid choice! Please choose between 1-5.");
+                    System.out.println("Invalid choice! Please choose between 1-11.");
+            }
+        }
+    }
+
+    private static void printImportReport(ImportReport report, int maxReasons) {
+        System.out.println("Rows read: " + report.rows + ", imported: " + report.imported
+                + " (" + report.added + " new students), rejected: " + report.rejected);
+        for (int i = 0; i < Math.min(maxReasons, report.reasons.size()); i++) {
+            System.out.println("  " + report.reasons.get(i));
+        }
+        if (report.rejected > maxReasons) {
+            System.out.println("  ... and " + (report.rejected - maxReasons) + " more");
+        }
+    }
+
+    // Save a graded roster to a store in a temporary directory, reopen it, and
+    // time the raw row scan, the full reload with every index, and in-place marks
+    // updates; the reloaded marks must match what was saved.
+    // Usage: store [students] [updates]
+    private static void storeBenchmark(String[] args) throws IOException {
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int updates = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        Path dir = Files.createTempDirectory("studentdata");
+        Random random = new Random(42);
+        double[][] expected = new double[n][Student.SUBJECTS];
+
+        long start = System.nanoTime();
+        try (StudentStore store = StudentStore.open(dir)) {
+            StudentManagement management = new StudentManagement();
+            management.attach(store);
+            PrintStream console = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));   // silence per-student messages
+            for (int i = 0; i < n; i++) {
+                Student student = new Student("Student " + i, "R" + i, "DEPT" + (i % 8), 1 + i % 8);
+                for (int s = 0; s < Student.SUBJECTS; s++) {
+                    expected[i][s] = random.nextInt(101);
+                }
+                student.recordMarks(expected[i]);
+                management.addStudent(student);
+            }
+            System.setOut(console);
+        }
+        long saveNanos = System.nanoTime() - start;
+
+        long scanNanos;
+        long loadNanos;
+        long updateNanos;
+        long writeNanos;
+        int mismatches = 0;
+        try (StudentStore store = StudentStore.open(dir)) {
+            start = System.nanoTime();
+            double sink = 0;
+            for (int row = 0; row < store.size(); row++) {
+                sink += store.read(row).getGPA();
+            }
+            scanNanos = System.nanoTime() - start;
+            if (sink < 0) {
+                System.out.println(sink);
+            }
+
+            start = System.nanoTime();
+            StudentManagement management = new StudentManagement();
+            management.attach(store);
+            loadNanos = System.nanoTime() - start;
+
+            Student[] byRow = new Student[n];
+            for (int i = 0; i < n; i++) {
+                byRow[i] = management.findStudent("R" + i);
+            }
+            double[] marks = new double[Student.SUBJECTS];
+            start = System.nanoTime();
+            for (int u = 0; u < updates; u++) {
+                int i = random.nextInt(n);
+                for (int s = 0; s < Student.SUBJECTS; s++) {
+                    marks[s] = random.nextInt(101);
+                }
+                System.arraycopy(marks, 0, expected[i], 0, Student.SUBJECTS);
+                management.recordMarks(byRow[i], marks);
+            }
+            updateNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int u = 0; u < updates; u++) {
+                int i = random.nextInt(n);
+                store.writeMarks(i, byRow[i]);   // same marks again: just the positioned write
+            }
+            writeNanos = System.nanoTime() - start;
+        }
+        try (StudentStore store = StudentStore.open(dir)) {
+            for (int row = 0; row < n; row++) {
+                Student student = store.read(row);
+                for (int s = 0; s < Student.SUBJECTS; s++) {
+                    if (student.getMark(s) != expected[row][s]) {
+                        mismatches++;
+                    }
+                }
+            }
+        }
+        long bytes = Files.size(dir.resolve("students.dat")) + Files.size(dir.resolve("strings.dat"));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+
+        System.out.printf("%d students saved in %.2f s; %.1f MB on disk%n", n, saveNanos / 1e9, bytes / 1e6);
+        System.out.printf("Reopen: row scan %.0f ms (%.0f ns per student), full reload with indexes %.0f ms%n",
+                scanNanos / 1e6, (double) scanNanos / n, loadNanos / 1e6);
+        System.out.printf("%d marks updates through StudentManagement: %.2f us each (all indexes + in-place write)%n",
+                updates, updateNanos / 1e3 / updates);
+        System.out.printf("In-place row writes alone: %.0f ns each%n", (double) writeNanos / updates);
+        System.out.println(mismatches == 0 ? "PASS: reopened marks match" : "FAIL: " + mismatches + " marks differ");
+    }
+
+    // Register and grade a roster, re-grade part of it, then time dashboard reads
+    // and check every cell against a recount from scratch.
+    // Usage: rollup [students] [regrades]
+    private static void rollupBenchmark(String[] args) {
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        int regrades = args.length > 2 ? Integer.parseInt(args[2]) : n;
+        String[] departments = {"CS", "EE", "ME", "CE", "BBA", "MATH", "PHY", "CHEM"};
+        Random random = new Random(42);
+        StudentManagement management = new StudentManagement();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));   // silence per-student messages
+        List<Student> roster = new ArrayList<>(n);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            Student student = new Student("Student " + i, "R" + i, departments[random.nextInt(departments.length)],
+                    1 + random.nextInt(8));
+            management.addStudent(student);
+            roster.add(student);
+        }
+        System.setOut(console);
+        double[] marks = new double[Student.SUBJECTS];
+        for (int i = 0; i < n + regrades; i++) {
+            Student student = roster.get(i < n ? i : random.nextInt(n));
+            for (int s = 0; s < Student.SUBJECTS; s++) {
+                marks[s] = random.nextInt(101);
+            }
+            management.recordMarks(student, marks);
+        }
+        long updates = System.nanoTime() - start;
+
+        RollupCube cube = management.rollups();
+        int reads = 10_000_000;
+        double sink = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            RollupCell cell = cube.cell(departments[i & 7], 1 + ((i >>> 3) & 7));
+            sink += cell.averageGpa() + cell.passRate() + cell.topStudent().getGPA();
+        }
+        long readNanos = System.nanoTime() - start;
+
+        int mismatches = 0;
+        for (String department : departments) {
+            for (int semester = 1; semester <= 8; semester++) {
+                int count = 0;
+                double gpaSum = 0;
+                int passed = 0;
+                double best = -1;
+                for (Student student : roster) {
+                    if (student.getDepartment().equals(department) && student.getSemester() == semester) {
+                        count++;
+                        gpaSum += student.getGPA();
+                        passed += RollupCube.passed(student.getPercentage()) ? 1 : 0;
+                        best = Math.max(best, student.getGPA());
+                    }
+                }
+                RollupCell cell = cube.cell(department, semester);
+                if (cell.students != count || cell.graded != count || cell.passed != passed
+                        || Math.abs(cell.gpaSum - gpaSum) > 1e-6 || cell.topStudent().getGPA() != best) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("%d students added and %d mark entries in %.2f s (%.1f us per entry, all indexes included)%n",
+                n, n + regrades, updates / 1e9, updates / 1e3 / (2.0 * n + regrades));
+        System.out.printf("Dashboard cell reads: %.1f ns each (checksum %.0f)%n", (double) readNanos / reads, sink);
+        System.out.println(mismatches == 0 ? "PASS: all 64 cells match a full recount"
+                : "FAIL: " + mismatches + " cell(s) differ from a full recount");
+    }
+
+    // Sketch GPA and percentage for a cohort spread over 8 departments x 8
+    // semesters, merge the 64 group sketches, and compare with exact quantiles.
+    // Usage: sketch [students]
+    private static void sketchBenchmark(String[] args) {
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Random random = new Random(42);
+        CohortSketches[] groups = new CohortSketches[64];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = new CohortSketches();
+        }
+        double[] percentages = new double[n];
+        double[] entered = new double[Student.SUBJECTS];
+        Student student = new Student("Student", "R", "CS", 1);
+        long updateNanos = 0;
+        for (int i = 0; i < n; i++) {
+            int group = random.nextInt(groups.length);
+            for (int s = 0; s < Student.SUBJECTS; s++) {
+                // groups differ in difficulty, so the merged distribution is lumpy
+                entered[s] = Math.max(0, Math.min(100, Math.round(45 + group / 2.0 + 15 * random.nextGaussian())));
+            }
+            student.recordMarks(entered);
+            percentages[i] = student.getPercentage();
+            long start = System.nanoTime();
+            groups[group].add(student);
+            updateNanos += System.nanoTime() - start;
+        }
+        long start = System.nanoTime();
+        CohortSketches all = new CohortSketches();
+        int retained = 0;
+        for (CohortSketches group : groups) {
+            all.merge(group);
+            retained += group.percentage.retained();
+        }
+        long mergeNanos = System.nanoTime() - start;
+
+        Arrays.sort(percentages);
+        double worst = 0;
+        for (int q = 1; q < 100; q++) {
+            double estimate = all.percentage.quantile(q / 100.0);
+            // rank error: where the estimate really falls, against where it should
+            int lo = lowerBound(percentages, estimate);
+            int hi = lowerBound(percentages, Math.nextUp(estimate));
+            double target = q / 100.0 * n;
+            double error = target < lo ? lo - target : target > hi ? target - hi : 0;
+            worst = Math.max(worst, error / n);
+        }
+        System.out.printf("%d results in %d group sketches: %.0f ns per update (both sketches), %d values retained per metric%n",
+                n, groups.length, (double) updateNanos / n, retained);
+        System.out.printf("Merged all groups in %.2f ms; merged sketch holds %d values%n",
+                mergeNanos / 1e6, all.percentage.retained());
+        System.out.printf("Median percentage: exact %.2f, sketch %.2f; worst rank error over p1..p99: %.3f%%%n",
+                percentages[n / 2], all.percentage.quantile(0.5), 100 * worst);
+        System.out.println(worst < 0.02 ? "PASS: within 2% rank error" : "FAIL: rank error too large");
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Write a marks CSV for the given number of students, about 1 row in 1000
+    // deliberately invalid, and time importing it into an empty system.
+    // Usage: import [students]
+    private static void importBenchmark(String[] args) throws IOException {
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        Path file = Files.createTempFile("marks", ".csv");
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("rollNo,name,department,semester,m1,m2,m3,m4,m5\n");
+            for (int i = 0; i < n; i++) {
+                out.write("R" + i + ",\"Student, " + i + "\",CS," + (1 + random.nextInt(8)));
+                for (int s = 0; s < Student.SUBJECTS; s++) {
+                    int mark = random.nextInt(101);
+                    out.write("," + mark + (mark < 100 && random.nextBoolean() ? ".5" : ""));
+                }
+                out.write(random.nextInt(1000) == 0 ? ",101\n" : "\n");
+            }
+        }
+        StudentManagement management = new StudentManagement();
+        long start = System.nanoTime();
+        ImportReport report = management.importMarks(file);
+        long elapsed = System.nanoTime() - start;
+        Files.delete(file);
+        printImportReport(report, 3);
+        System.out.printf("%.2f s, %.0f rows/s%n", elapsed / 1e9, report.rows / (elapsed / 1e9));
+    }
+
+    // Subject statistics and cohort GPA recomputation over the same random marks,
+    // one Student object per student versus one array per subject.
+    // Usage: bench [students] [rounds]
+    private static void benchmark(String[] args) {
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Random random = new Random(42);
+        List<Student> objects = new ArrayList<>(n);
+        MarksColumns columns = new MarksColumns();
+        double[] entered = new double[Student.SUBJECTS];
+        for (int i = 0; i < n; i++) {
+            for (int s = 0; s < Student.SUBJECTS; s++) {
+                entered[s] = random.nextInt(101);
+            }
+            Student student = new Student("Student " + i, "R" + i, "CS", 1);
+            student.recordMarks(entered);
+            objects.add(student);
+            columns.addRow(entered);
+        }
+
+        long objectStats = Long.MAX_VALUE;
+        long objectGpa = Long.MAX_VALUE;
+        long columnStats = Long.MAX_VALUE;
+        long parallelStats = Long.MAX_VALUE;
+        long columnGpa = Long.MAX_VALUE;
+        long parallelGpa = Long.MAX_VALUE;
+        double check = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int s = 0; s < Student.SUBJECTS; s++) {
+                SubjectStats stats = new SubjectStats();
+                stats.count = objects.size();
+                for (Student student : objects) {
+                    double mark = student.getMark(s);
+                    stats.sum += mark;
+                    stats.sumOfSquares += mark * mark;
+                    stats.min = Math.min(stats.min, mark);
+                    stats.max = Math.max(stats.max, mark);
+                    stats.histogram[SubjectStats.bucket(mark)]++;
+                }
+                check += stats.standardDeviation();
+            }
+            objectStats = Math.min(objectStats, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            double[] gpas = new double[objects.size()];
+            for (int i = 0; i < gpas.length; i++) {
+                Student student = objects.get(i);
+                double total = 0;
+                for (int s = 0; s < Student.SUBJECTS; s++) {
+                    total += student.getMark(s);
+                }
+                gpas[i] = Student.gpaFor(total / 500 * 100);
+            }
+            objectGpa = Math.min(objectGpa, System.nanoTime() - start);
+            check += gpas[round];
+
+            for (boolean parallel : new boolean[] {false, true}) {
+                start = System.nanoTime();
+                for (int s = 0; s < Student.SUBJECTS; s++) {
+                    check -= columns.subjectStats(s, parallel).standardDeviation() / 2;
+                }
+                long elapsed = System.nanoTime() - start;
+                if (parallel) {
+                    parallelStats = Math.min(parallelStats, elapsed);
+                } else {
+                    columnStats = Math.min(columnStats, elapsed);
+                }
+
+                start = System.nanoTime();
+                double[] columnGpas = columns.gpas(parallel);
+                elapsed = System.nanoTime() - start;
+                if (parallel) {
+                    parallelGpa = Math.min(parallelGpa, elapsed);
+                } else {
+                    columnGpa = Math.min(columnGpa, elapsed);
+                }
+                check -= columnGpas[round] / 2;
             }
         }
+        System.out.printf("%d students, best of %d rounds, %d core(s):%n", n, rounds,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("  subject statistics: objects %.1f ms, columns %.1f ms, columns in parallel %.1f ms%n",
+                objectStats / 1e6, columnStats / 1e6, parallelStats / 1e6);
+        System.out.printf("  cohort GPA:         objects %.1f ms, columns %.1f ms, columns in parallel %.1f ms%n",
+                objectGpa / 1e6, columnGpa / 1e6, parallelGpa / 1e6);
+        System.out.println(Math.abs(check) < 1e-6 ? "PASS: both layouts agree" : "FAIL: layouts disagree by " + check);
     }
 }